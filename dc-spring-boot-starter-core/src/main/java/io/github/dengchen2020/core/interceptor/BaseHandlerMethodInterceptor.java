@@ -10,12 +10,30 @@ import org.springframework.web.servlet.HandlerInterceptor;
 
 /**
  * 控制器的拦截器基类
+ * <p>获取控制器方法上的注解应使用{@link #handlerMethodMetadata(HandlerMethod)}，注解在启动时合并缓存，
+ * 通过构造器传入容器中的{@link HandlerMethodMetadataRegistry}时所有拦截器共享</p>
  * @author xiaochen
  * @since 2025/2/25
  */
 @NullMarked
 public abstract class BaseHandlerMethodInterceptor implements HandlerInterceptor {
 
+    private final HandlerMethodMetadataRegistry handlerMethodMetadataRegistry;
+
+    /**
+     * 使用拦截器自己的注解元数据注册表，不与其他拦截器共享
+     */
+    protected BaseHandlerMethodInterceptor() {
+        this(new HandlerMethodMetadataRegistry());
+    }
+
+    /**
+     * @param handlerMethodMetadataRegistry 容器中的注解元数据注册表
+     */
+    protected BaseHandlerMethodInterceptor(HandlerMethodMetadataRegistry handlerMethodMetadataRegistry) {
+        this.handlerMethodMetadataRegistry = handlerMethodMetadataRegistry;
+    }
+
     /**
      * <p>跳过{@link DispatcherType#ERROR}请求是因为当没有配置对应的异常处理时会两次进入拦截器，
      * 第二次会执行到{@link BasicErrorController#errorHtml(HttpServletRequest, HttpServletResponse)}，该错误页面不需要拦截处理</p>
@@ -56,4 +74,13 @@ public abstract class BaseHandlerMethodInterceptor implements HandlerInterceptor
         return true;
     }
 
+    /**
+     * 获取控制器方法的注解元数据
+     * @param handlerMethod 控制器方法
+     * @return {@link HandlerMethodMetadata}
+     */
+    protected final HandlerMethodMetadata handlerMethodMetadata(HandlerMethod handlerMethod) {
+        return handlerMethodMetadataRegistry.get(handlerMethod);
+    }
+
 }
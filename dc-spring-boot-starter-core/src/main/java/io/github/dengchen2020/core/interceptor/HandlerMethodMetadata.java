@@ -0,0 +1,103 @@
+package io.github.dengchen2020.core.interceptor;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 控制器方法的注解元数据，所有拦截器共享
+ * <p>创建时一次性合并方法与控制器类上的注解（方法级别优先），之后获取注解不再反射；
+ * 各拦截器根据注解解析出的数据也可通过{@link #computeIfAbsent(Object, Function)}缓存在这里</p>
+ * <p>由{@link HandlerMethodMetadataRegistry}创建和持有，启动时会为所有控制器方法预先创建，请求时只需查表</p>
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public final class HandlerMethodMetadata {
+
+    private static final Object NULL = new Object();
+
+    private final HandlerMethod handlerMethod;
+
+    /**
+     * 合并后的注解，方法上的注解覆盖类上的同类型注解
+     */
+    private final Map<Class<? extends Annotation>, Annotation> annotations;
+
+    private final Map<Class<? extends Annotation>, Annotation[]> repeatableAnnotations = new ConcurrentHashMap<>();
+
+    private final Map<Object, Object> attributes = new ConcurrentHashMap<>();
+
+    HandlerMethodMetadata(HandlerMethod handlerMethod) {
+        this.handlerMethod = handlerMethod;
+        Map<Class<? extends Annotation>, Annotation> merged = new HashMap<>();
+        for (Annotation annotation : handlerMethod.getBeanType().getAnnotations()) merged.put(annotation.annotationType(), annotation);
+        for (Annotation annotation : handlerMethod.getMethod().getAnnotations()) merged.put(annotation.annotationType(), annotation);
+        this.annotations = Map.copyOf(merged);
+    }
+
+    /**
+     * 创建该元数据的控制器方法
+     */
+    public HandlerMethod getHandlerMethod() {
+        return handlerMethod;
+    }
+
+    /**
+     * 获取注解，方法上没有时取控制器类上的，与先后调用{@link Method#getAnnotation(Class)}、{@link Class#getAnnotation(Class)}结果一致
+     * @param annotationType 注解类型
+     * @return 注解，不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <A extends Annotation> @Nullable A getAnnotation(Class<A> annotationType) {
+        return (A) annotations.get(annotationType);
+    }
+
+    /**
+     * 是否存在注解，方法或控制器类上存在即可
+     * @param annotationType 注解类型
+     */
+    public boolean hasAnnotation(Class<? extends Annotation> annotationType) {
+        return annotations.containsKey(annotationType);
+    }
+
+    /**
+     * 获取可重复注解，方法上没有时取控制器类上的，与先后调用{@link Method#getAnnotationsByType(Class)}、{@link Class#getAnnotationsByType(Class)}结果一致
+     * <p>返回的数组为共享实例，不可修改</p>
+     * @param annotationType 注解类型
+     * @return 注解，不存在时返回空数组
+     */
+    @SuppressWarnings("unchecked")
+    public <A extends Annotation> A[] getAnnotationsByType(Class<A> annotationType) {
+        var cached = repeatableAnnotations.get(annotationType);
+        if (cached == null) cached = repeatableAnnotations.computeIfAbsent(annotationType, _ -> {
+            A[] found = handlerMethod.getMethod().getAnnotationsByType(annotationType);
+            return found.length == 0 ? handlerMethod.getBeanType().getAnnotationsByType(annotationType) : found;
+        });
+        return (A[]) cached;
+    }
+
+    /**
+     * 获取缓存的数据，不存在时计算并缓存，计算结果可以为null
+     * @param key 数据标识，如拦截器实例或类型
+     * @param mappingFunction 根据元数据计算数据
+     * @return 缓存的数据
+     */
+    @SuppressWarnings("unchecked")
+    public <T> @Nullable T computeIfAbsent(Object key, Function<HandlerMethodMetadata, ? extends @Nullable T> mappingFunction) {
+        var value = attributes.get(key);
+        if (value == null) value = attributes.computeIfAbsent(key, _ -> {
+            T computed = mappingFunction.apply(this);
+            return computed == null ? NULL : computed;
+        });
+        return value == NULL ? null : (T) value;
+    }
+
+}
@@ -0,0 +1,57 @@
+package io.github.dengchen2020.core.interceptor;
+
+import org.jspecify.annotations.NullMarked;
+import org.springframework.web.method.HandlerMethod;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * 控制器方法注解元数据的注册表，由容器管理，随应用上下文一起销毁
+ * <p>启动时为所有控制器方法预先创建{@link HandlerMethodMetadata}，拦截器通过构造器注入同一个注册表实例共享元数据；
+ * 需要在启动时预先解析的拦截器可通过{@link #addInitializer(Consumer)}注册初始化回调，无需再遍历一次所有接口</p>
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class HandlerMethodMetadataRegistry {
+
+    /**
+     * 控制器类型 -> 方法 -> 元数据，同一方法在不同控制器类型中的类级别注解可能不同
+     */
+    private final Map<Class<?>, Map<Method, HandlerMethodMetadata>> cache = new ConcurrentHashMap<>();
+
+    private final List<Consumer<HandlerMethodMetadata>> initializers = new CopyOnWriteArrayList<>();
+
+    /**
+     * 获取控制器方法的元数据，不存在时创建并执行初始化回调
+     * @param handlerMethod 控制器方法
+     * @return {@link HandlerMethodMetadata}
+     */
+    public HandlerMethodMetadata get(HandlerMethod handlerMethod) {
+        var methods = cache.computeIfAbsent(handlerMethod.getBeanType(), _ -> new ConcurrentHashMap<>());
+        var metadata = methods.get(handlerMethod.getMethod());
+        if (metadata != null) return metadata;
+        var created = new HandlerMethodMetadata(handlerMethod);
+        metadata = methods.putIfAbsent(handlerMethod.getMethod(), created);
+        if (metadata != null) return metadata;
+        // 在映射表之外执行，回调中可以再获取其他控制器方法的元数据
+        for (var initializer : initializers) initializer.accept(created);
+        return created;
+    }
+
+    /**
+     * 注册元数据的初始化回调，对已创建和之后创建的元数据各执行一次
+     * <p>回调可能与请求并发执行，应是幂等的，如通过{@link HandlerMethodMetadata#computeIfAbsent}缓存解析结果</p>
+     * @param initializer 初始化回调
+     */
+    public void addInitializer(Consumer<HandlerMethodMetadata> initializer) {
+        initializers.add(initializer);
+        for (var methods : cache.values()) methods.values().forEach(initializer);
+    }
+
+}
@@ -154,9 +154,18 @@ public final class RedisDependencyAutoConfiguration {
         }
     }
 
+    /**
+     * 存活节点注册表，按应用名区分，应用关闭时退出注册表
+     */
+    @ConditionalOnMissingBean
+    @Bean
+    RedisNodeRegistry redisNodeRegistry(StringRedisTemplate redisTemplate, Environment environment) {
+        return new RedisNodeRegistry(redisTemplate, environment.getProperty("spring.application.name", "application"));
+    }
+
     @Bean
-    ScheduledPreventConcurrencyAop scheduledPreventConcurrencyAop(StringRedisTemplate redisTemplate, Environment environment, ApplicationEventPublisher applicationEventPublisher){
-        return new ScheduledPreventConcurrencyAop(redisTemplate, environment, applicationEventPublisher);
+    ScheduledPreventConcurrencyAop scheduledPreventConcurrencyAop(StringRedisTemplate redisTemplate, RedisNodeRegistry redisNodeRegistry, Environment environment, ApplicationEventPublisher applicationEventPublisher){
+        return new ScheduledPreventConcurrencyAop(redisTemplate, redisNodeRegistry, environment, applicationEventPublisher);
     }
 
 }
@@ -0,0 +1,160 @@
+package io.github.dengchen2020.core.redis;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 存活节点注册表
+ * <p>每个节点定时向Redis的有序集合写入心跳，分数为Redis服务器时间，不受各节点时钟偏差影响；
+ * 调用{@link #start()}或首次使用时开始心跳，Redis不可用时保留最后一次的结果。供定时任务分片、限流本地兜底等需要感知节点数的功能共用</p>
+ * <p>有序集合按应用名区分，同一Redis上的其他应用不计入节点数</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class RedisNodeRegistry implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisNodeRegistry.class);
+
+    private static final String NODES_KEY_PREFIX = "dc:nodes:";
+
+    /**
+     * 心跳间隔（毫秒）
+     */
+    private static final long HEARTBEAT_MILLIS = 5_000L;
+
+    /**
+     * 超过该时长未心跳视为节点下线（毫秒）
+     */
+    private static final long NODE_TTL_MILLIS = HEARTBEAT_MILLIS * 3;
+
+    /**
+     * 上报心跳并清理过期节点，返回{本节点在存活节点中按id排序的下标, 存活节点数}
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> heartbeatScript = new DefaultRedisScript<>("""
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local ttl = tonumber(ARGV[2])
+            redis.call('ZADD', KEYS[1], now, ARGV[1])
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], '-inf', now - ttl)
+            redis.call('PEXPIRE', KEYS[1], ttl)
+            local nodes = redis.call('ZRANGE', KEYS[1], 0, -1)
+            table.sort(nodes)
+            for i, node in ipairs(nodes) do
+                if node == ARGV[1] then
+                    return {i - 1, #nodes}
+                end
+            end
+            return {0, 1}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final String nodesKey;
+
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+
+    private volatile Node current = new Node(0, 1);
+
+    // 心跳线程，首次使用时创建
+    private volatile @Nullable ScheduledExecutorService scheduler;
+
+    private volatile boolean closed;
+
+    public RedisNodeRegistry(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, "application");
+    }
+
+    /**
+     * @param namespace 命名空间，一般为应用名，相同命名空间的节点才互相计数
+     */
+    public RedisNodeRegistry(StringRedisTemplate redisTemplate, String namespace) {
+        this.redisTemplate = redisTemplate;
+        this.nodesKey = NODES_KEY_PREFIX + namespace;
+    }
+
+    /**
+     * 本节点id
+     */
+    public String nodeId() {
+        return nodeId;
+    }
+
+    /**
+     * 最近一次心跳的结果，首次调用时开始心跳
+     * @return 本节点的排序下标与存活节点数，尚未心跳成功时为{0, 1}
+     */
+    public Node current() {
+        if (scheduler == null) start();
+        return current;
+    }
+
+    /**
+     * 立即上报一次心跳并返回最新结果，失败时返回最近一次的结果
+     */
+    public Node refresh() {
+        if (scheduler == null) start();
+        heartbeat();
+        return current;
+    }
+
+    /**
+     * 开始心跳，可重复调用；需要在Redis出问题前就知道节点数的功能（如限流本地兜底）应在启动时调用
+     */
+    public synchronized void start() {
+        if (scheduler != null || closed) return;
+        var executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("redis-node-heartbeat").factory());
+        executor.scheduleWithFixedDelay(this::heartbeat, 0, HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler = executor;
+    }
+
+    private void heartbeat() {
+        try {
+            List<?> result = redisTemplate.execute(heartbeatScript, List.of(nodesKey), nodeId, String.valueOf(NODE_TTL_MILLIS));
+            if (result != null && result.size() == 2) {
+                current = new Node(((Number) result.get(0)).intValue(), Math.max(((Number) result.get(1)).intValue(), 1));
+            }
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) log.debug("节点心跳失败，沿用上次的结果：{}，异常信息：{}", current, e.toString());
+        }
+    }
+
+    /**
+     * 停止心跳并退出注册表，其他节点立即感知到节点数变化
+     */
+    @Override
+    public synchronized void destroy() {
+        closed = true;
+        var executor = scheduler;
+        if (executor == null) return;
+        executor.shutdownNow();
+        try {
+            redisTemplate.opsForZSet().remove(nodesKey, nodeId);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) log.debug("移除节点心跳失败：{}", e.toString());
+        }
+    }
+
+    /**
+     * 存活节点信息
+     *
+     * @param rank 本节点在存活节点中按id排序的下标
+     * @param count 存活节点数，最小为1
+     */
+    public record Node(int rank, int count) {}
+
+}
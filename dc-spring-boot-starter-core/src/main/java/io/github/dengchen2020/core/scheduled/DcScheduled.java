@@ -140,8 +140,20 @@ public @interface DcScheduled {
     boolean concurrency() default false;
 
     /**
-     * 指定时间内不允许其他服务器执行，默认20秒
+     * 指定时间内不允许其他服务器执行，默认20秒，任务执行时长超过该时间时自动续期直到执行完成
      */
     long seconds() default 20;
 
+    /**
+     * 分片数，大于1时每次触发拆分为多个分片，由存活节点通过Redis认领执行，执行吞吐随节点数增加
+     * <p>任务内通过{@link ScheduledShard#current()}获取当前分片，只处理属于当前分片的数据；
+     * 未引入Redis或concurrency=true时不分片，当前分片为0/1（即全部数据）</p>
+     */
+    int shards() default 1;
+
+    /**
+     * 分片执行失败时的重试次数，仅分片模式生效，失败的分片立即释放执行权，可由任意节点重新认领
+     */
+    int shardRetries() default 1;
+
 }
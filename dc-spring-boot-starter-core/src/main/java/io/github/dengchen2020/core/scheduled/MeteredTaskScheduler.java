@@ -0,0 +1,156 @@
+package io.github.dengchen2020.core.scheduled;
+
+import org.springframework.scheduling.Trigger;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 记录定时任务指标的调度器
+ * <p>在调度时即可得到每次触发的计划执行时间：cron等触发器取触发器返回的时间，固定频率为开始时间加整数倍周期，
+ * 固定延迟为上次完成时间加延迟时间，据此计算延迟和超时</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+final class MeteredTaskScheduler extends ThreadPoolTaskScheduler {
+
+    /**
+     * 当前执行是否被跳过，由{@link ScheduledPreventConcurrencyAop}在未获得执行权时标记
+     */
+    private static final ScopedValue<boolean[]> SKIPPED = ScopedValue.newInstance();
+
+    private final ScheduledTaskMetrics metrics;
+
+    MeteredTaskScheduler(ScheduledTaskMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 标记当前执行因执行权被其他服务器持有而跳过，不在本调度器中执行时忽略
+     */
+    static void markSkipped() {
+        if (SKIPPED.isBound()) SKIPPED.get()[0] = true;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable task, Trigger trigger) {
+        var metered = new MeteredRunnable(task, 0, 0);
+        return super.schedule(metered, triggerContext -> {
+            Instant next = trigger.nextExecution(triggerContext);
+            metered.plan(next == null ? 0 : next.toEpochMilli());
+            return next;
+        });
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Instant startTime, Duration period) {
+        var metered = new MeteredRunnable(task, period.toMillis(), 0);
+        metered.plan(startTime.toEpochMilli());
+        return super.scheduleAtFixedRate(metered, startTime, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, Duration period) {
+        var metered = new MeteredRunnable(task, period.toMillis(), 0);
+        metered.plan(System.currentTimeMillis());
+        return super.scheduleAtFixedRate(metered, period);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Instant startTime, Duration delay) {
+        var metered = new MeteredRunnable(task, 0, delay.toMillis());
+        metered.plan(startTime.toEpochMilli());
+        return super.scheduleWithFixedDelay(metered, startTime, delay);
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable task, Duration delay) {
+        var metered = new MeteredRunnable(task, 0, delay.toMillis());
+        metered.plan(System.currentTimeMillis());
+        return super.scheduleWithFixedDelay(metered, delay);
+    }
+
+    /**
+     * 任务名称，@Scheduled方法的toString()为"包名.类名.方法名"，取"类名.方法名"并去掉CGLIB代理类后缀
+     */
+    static String taskName(Runnable task) {
+        String name = task.toString();
+        int method = name.lastIndexOf('.');
+        int proxy = name.indexOf("$$");
+        if (proxy > 0 && proxy < method) {
+            name = name.substring(0, proxy) + name.substring(method);
+            method = name.lastIndexOf('.');
+        }
+        int type = method > 0 ? name.lastIndexOf('.', method - 1) : -1;
+        return name.substring(type + 1);
+    }
+
+    private final class MeteredRunnable implements Runnable {
+
+        private final Runnable task;
+
+        private final String name;
+
+        // 固定频率的周期（毫秒），其他方式为0
+        private final long periodMillis;
+
+        // 固定延迟的延迟时间（毫秒），其他方式为0
+        private final long delayMillis;
+
+        // 本次与上次触发的计划执行时间，0表示未知
+        private volatile long planned;
+
+        private volatile long previousPlanned;
+
+        MeteredRunnable(Runnable task, long periodMillis, long delayMillis) {
+            this.task = task;
+            this.name = taskName(task);
+            this.periodMillis = periodMillis;
+            this.delayMillis = delayMillis;
+        }
+
+        void plan(long plannedMillis) {
+            this.previousPlanned = this.planned;
+            this.planned = plannedMillis;
+        }
+
+        @Override
+        public void run() {
+            long plannedStart = planned;
+            long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
+            if (plannedStart > 0) metrics.lag(name, TimeUnit.MILLISECONDS.toNanos(Math.max(start - plannedStart, 0)));
+            boolean[] skipped = {false};
+            boolean success = false;
+            try {
+                ScopedValue.where(SKIPPED, skipped).run(task);
+                success = true;
+            } finally {
+                long duration = System.nanoTime() - startNanos;
+                if (skipped[0]) {
+                    metrics.skipped(name);
+                } else {
+                    metrics.executed(name, duration, success);
+                    // 触发器方式以最近两次计划执行时间的间隔作为周期，固定延迟没有超时的概念
+                    long period = periodMillis > 0 ? periodMillis : delayMillis > 0 || previousPlanned <= 0 ? 0 : plannedStart - previousPlanned;
+                    if (period > 0 && duration > TimeUnit.MILLISECONDS.toNanos(period)) metrics.overrun(name, duration, TimeUnit.MILLISECONDS.toNanos(period));
+                }
+                if (periodMillis > 0) {
+                    plan(plannedStart + periodMillis);
+                } else if (delayMillis > 0) {
+                    plan(System.currentTimeMillis() + delayMillis);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+}
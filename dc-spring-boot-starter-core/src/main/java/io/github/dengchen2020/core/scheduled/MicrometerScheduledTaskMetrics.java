@@ -0,0 +1,73 @@
+package io.github.dengchen2020.core.scheduled;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于Micrometer的定时任务指标
+ * <ul>
+ *     <li>dc.task.execution：执行时长，标签task、outcome（success、error）</li>
+ *     <li>dc.task.skipped：执行权被其他服务器持有而跳过的次数，标签task</li>
+ *     <li>dc.task.overrun：执行时长超过调度周期的次数，标签task</li>
+ *     <li>dc.task.lag：计划执行时间与实际开始时间的差，标签task</li>
+ * </ul>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class MicrometerScheduledTaskMetrics implements ScheduledTaskMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<String, Timer> executionTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Timer> lagTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> skippedCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> overrunCounters = new ConcurrentHashMap<>();
+
+    public MicrometerScheduledTaskMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void executed(String task, long durationNanos, boolean success) {
+        String outcome = success ? "success" : "error";
+        executionTimers.computeIfAbsent(task + "|" + outcome, _ -> Timer.builder("dc.task.execution")
+                .description("定时任务执行时长")
+                .tag("task", task)
+                .tag("outcome", outcome)
+                .register(registry)).record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void skipped(String task) {
+        skippedCounters.computeIfAbsent(task, _ -> Counter.builder("dc.task.skipped")
+                .description("执行权被其他服务器持有而跳过的次数")
+                .tag("task", task)
+                .register(registry)).increment();
+    }
+
+    @Override
+    public void overrun(String task, long durationNanos, long periodNanos) {
+        overrunCounters.computeIfAbsent(task, _ -> Counter.builder("dc.task.overrun")
+                .description("定时任务执行时长超过调度周期的次数")
+                .tag("task", task)
+                .register(registry)).increment();
+    }
+
+    @Override
+    public void lag(String task, long lagNanos) {
+        lagTimers.computeIfAbsent(task, _ -> Timer.builder("dc.task.lag")
+                .description("定时任务计划执行时间与实际开始时间的差")
+                .tag("task", task)
+                .register(registry)).record(lagNanos, TimeUnit.NANOSECONDS);
+    }
+
+}
@@ -1,11 +1,15 @@
 package io.github.dengchen2020.core.scheduled;
 
 import io.github.dengchen2020.core.event.ScheduledHandleBeforeEvent;
+import io.github.dengchen2020.core.redis.RedisNodeRegistry;
 import io.github.dengchen2020.core.utils.IPUtils;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.SmartLifecycle;
 import org.springframework.core.env.Environment;
@@ -16,21 +20,89 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.util.StringUtils;
 
 import java.util.ArrayList;
-import java.util.UUID;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 定时任务多台服务器避免并行执行
+ * <p>一次Lua脚本完成抢占（SET NX PX）并生成递增的防护令牌，任务执行期间由虚拟线程定时续期，
+ * 执行完成后比较持有者再释放，独占窗口（seconds）未结束时只缩短过期时间到窗口结束，避免其他节点在同一次触发中重复执行</p>
+ * <p>分片模式下每个分片单独抢占执行权，存活节点由{@link RedisNodeRegistry}按心跳排序，优先认领属于自己的分片，再认领其他未被认领的分片</p>
  *
  * @author xiaochen
  * @since 2022/4/1 11:18
  */
 @Aspect
-public class ScheduledPreventConcurrencyAop implements SmartLifecycle {
+public class ScheduledPreventConcurrencyAop implements SmartLifecycle, DisposableBean {
 
     public static final int PHASE = 20000;
 
+    private static final Logger log = LoggerFactory.getLogger(ScheduledPreventConcurrencyAop.class);
+
+    private static final String KEY_PREFIX = "{dc:task}:";
+
+    /**
+     * 防护令牌计数器前缀，与任务key使用相同的hash tag，集群模式下位于同一slot
+     */
+    private static final String FENCE_KEY_PREFIX = "{dc:task}:fence:";
+
+    /**
+     * 最小租约时长（毫秒）
+     */
+    private static final long MIN_LEASE_MILLIS = 1000L;
+
+    private static final ScopedValue<Long> FENCING_TOKEN = ScopedValue.newInstance();
+
+    /**
+     * 抢占执行权，key不存在或由本节点持有时抢占成功，返回{递增的防护令牌, 独占窗口剩余毫秒数}，被其他节点持有时返回{0, 0}
+     * <p>本节点在独占窗口内再次执行时沿用原窗口，窗口到期后其他节点可争抢</p>
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> acquireScript = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            local window = tonumber(ARGV[2])
+            if current then
+                if string.sub(current, 1, #ARGV[1] + 1) ~= ARGV[1] .. ':' then
+                    return {0, 0}
+                end
+                local pttl = redis.call('PTTL', KEYS[1])
+                if pttl > 0 then
+                    window = pttl
+                end
+            end
+            local fence = redis.call('INCR', KEYS[2])
+            redis.call('SET', KEYS[1], ARGV[1] .. ':' .. fence, 'PX', window)
+            return {fence, window}
+            """, List.class);
+
+    private static final RedisScript<Long> renewScript = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * 比较持有者后释放，ARGV[2]为独占窗口的剩余毫秒数，大于0时只缩短过期时间
+     */
+    private static final RedisScript<Long> releaseScript = new DefaultRedisScript<>("""
+            if redis.call('GET', KEYS[1]) ~= ARGV[1] then
+                return 0
+            end
+            local remaining = tonumber(ARGV[2])
+            if remaining > 0 then
+                redis.call('PEXPIRE', KEYS[1], remaining)
+            else
+                redis.call('DEL', KEYS[1])
+            end
+            return 1
+            """, Long.class);
+
     private volatile boolean running = false;
 
     /**
@@ -39,15 +111,23 @@ public class ScheduledPreventConcurrencyAop implements SmartLifecycle {
     private final String uniqueId;
     private final ConcurrentHashMap.KeySetView<String, Boolean> keys = ConcurrentHashMap.newKeySet();
 
-    public ScheduledPreventConcurrencyAop(StringRedisTemplate stringRedisTemplate, Environment environment, ApplicationEventPublisher eventPublisher) {
+    // 任务执行期间的续期线程，首次执行任务时创建，应用关闭时停止
+    private volatile ScheduledExecutorService renewer;
+
+    private volatile boolean closed;
+
+    public ScheduledPreventConcurrencyAop(StringRedisTemplate stringRedisTemplate, RedisNodeRegistry nodeRegistry, Environment environment, ApplicationEventPublisher eventPublisher) {
         this.stringRedisTemplate = stringRedisTemplate;
+        this.nodeRegistry = nodeRegistry;
         this.eventPublisher = eventPublisher;
-        this.uniqueId = UUID.randomUUID().toString().replace("-", "");
+        this.uniqueId = nodeRegistry.nodeId();
         this.port = environment.getProperty("server.port");
     }
 
     private final StringRedisTemplate stringRedisTemplate;
 
+    private final RedisNodeRegistry nodeRegistry;
+
     private final String port;
 
     private final ApplicationEventPublisher eventPublisher;
@@ -59,42 +139,188 @@ public class ScheduledPreventConcurrencyAop implements SmartLifecycle {
 
     @Around(value = "@annotation(scheduled)")
     public Object taskAround(ProceedingJoinPoint joinPoint, DcScheduled scheduled) throws Throwable {
+        if (scheduled.shards() > 1 && !scheduled.concurrency()) return handleSharded(joinPoint, scheduled);
         return handle(joinPoint, scheduled.concurrency(), scheduled.seconds());
     }
 
+    /**
+     * 当前定时任务的防护令牌，每次抢占成功递增，可随写操作一起提交，由下游拒绝令牌小于已见最大值的旧执行者的写入
+     * @return 防护令牌，不在防并发的定时任务中执行时为0
+     */
+    public static long fencingToken() {
+        return FENCING_TOKEN.orElse(0L);
+    }
+
     /**
      * 对定时任务做前置处理
      *
      * @param joinPoint
      * @param concurrency 允许多台服务器同时执行（默认false）
-     * @param seconds 指定时间内不允许其他服务器执行
+     * @param seconds 指定时间内不允许其他服务器执行，任务执行时长超过该时间时持续续期
      * @return
      * @throws Throwable
      */
     private Object handle(ProceedingJoinPoint joinPoint, boolean concurrency, long seconds) throws Throwable {
         var signature = joinPoint.getSignature();
-        String key = "{dc:task}:" + signature.getDeclaringType().getSimpleName() + ":" + signature.getName();
         if (concurrency) {
             publishEvent(signature);
             return joinPoint.proceed();
         }
+        String name = signature.getDeclaringType().getSimpleName() + ":" + signature.getName();
+        String key = KEY_PREFIX + name;
         keys.add(key);
-        var str = stringRedisTemplate.opsForValue().get(key);
-        if (str != null) {
-            if (uniqueId.equals(str)) {
-                publishEvent(signature);
-                return joinPoint.proceed();
-            }
+        long windowMillis = windowMillis(seconds);
+        //获得指定时间内的执行权
+        Lease lease = acquire(key, FENCE_KEY_PREFIX + name, windowMillis);
+        if (lease == null) {
+            MeteredTaskScheduler.markSkipped();
             return null;
         }
-        //获得指定时间内的执行权
-        if (Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, uniqueId, seconds, TimeUnit.SECONDS))) {
-            publishEvent(signature);
-            return joinPoint.proceed();
+        publishEvent(signature);
+        return runWithLease(lease, windowMillis, true, ScopedValue.where(FENCING_TOKEN, lease.fence()), joinPoint);
+    }
+
+    /**
+     * 分片执行，先认领属于本节点的分片，再认领其他未被认领的分片（宕机节点的分片、失败后释放的分片）
+     * <p>分片执行失败时立即释放执行权，本轮结束后重试，重试次数用尽后抛出第一个异常</p>
+     */
+    private Object handleSharded(ProceedingJoinPoint joinPoint, DcScheduled scheduled) throws Throwable {
+        var signature = joinPoint.getSignature();
+        String name = signature.getDeclaringType().getSimpleName() + ":" + signature.getName();
+        int total = scheduled.shards();
+        long windowMillis = windowMillis(scheduled.seconds());
+        var node = nodeRegistry.refresh();
+        List<Integer> pending = new ArrayList<>(total);
+        for (int shard : shardOrder(total, node.rank(), node.count())) pending.add(shard);
+        boolean published = false;
+        Throwable error = null;
+        for (int attempt = 0; attempt <= Math.max(scheduled.shardRetries(), 0) && !pending.isEmpty(); attempt++) {
+            List<Integer> failed = new ArrayList<>();
+            for (int shard : pending) {
+                String key = KEY_PREFIX + name + ":" + shard;
+                keys.add(key);
+                Lease lease = acquire(key, FENCE_KEY_PREFIX + name + ":" + shard, windowMillis);
+                if (lease == null) continue;
+                if (!published) {
+                    publishEvent(signature);
+                    published = true;
+                }
+                try {
+                    runWithLease(lease, windowMillis, false, ScopedValue.where(FENCING_TOKEN, lease.fence()).where(ScheduledShard.CURRENT, new ScheduledShard(shard, total)), joinPoint);
+                } catch (Throwable e) {
+                    log.warn("定时任务分片执行失败，已释放执行权等待重试：{}，分片：{}/{}，异常信息：{}", name, shard, total, e.toString());
+                    if (error == null) error = e;
+                    failed.add(shard);
+                }
+            }
+            pending = failed;
         }
+        if (!pending.isEmpty() && error != null) throw error;
+        // 所有分片都已被其他节点认领
+        if (!published) MeteredTaskScheduler.markSkipped();
         return null;
     }
 
+    /**
+     * 分片认领顺序：先是下标对存活节点数取模等于本节点下标的分片，再从本节点下标开始轮转其余分片，减少节点间的争抢
+     */
+    private static int[] shardOrder(int total, int rank, int nodes) {
+        int[] order = new int[total];
+        int n = 0;
+        for (int i = 0; i < total; i++) {
+            if (i % nodes == rank) order[n++] = i;
+        }
+        for (int i = 0; i < total; i++) {
+            int shard = (i + rank) % total;
+            if (shard % nodes != rank) order[n++] = shard;
+        }
+        return order;
+    }
+
+    private static long windowMillis(long seconds) {
+        return Math.max(TimeUnit.SECONDS.toMillis(seconds), MIN_LEASE_MILLIS);
+    }
+
+    /**
+     * 抢占执行权
+     * @return 执行权，为null表示被其他节点持有
+     */
+    private Lease acquire(String key, String fenceKey, long windowMillis) {
+        long start = System.currentTimeMillis();
+        List<?> acquired = stringRedisTemplate.execute(acquireScript, List.of(key, fenceKey), uniqueId, String.valueOf(windowMillis));
+        long fence = acquired == null ? 0 : ((Number) acquired.get(0)).longValue();
+        if (fence == 0) return null;
+        return new Lease(key, uniqueId + ":" + fence, fence, start, start + ((Number) acquired.get(1)).longValue());
+    }
+
+    /**
+     * 持有执行权期间执行任务并定时续期
+     * @param keepWindowOnFailure 执行失败时是否保留执行权到窗口结束，为false时立即释放以便重试
+     */
+    private Object runWithLease(Lease lease, long windowMillis, boolean keepWindowOnFailure, ScopedValue.Carrier carrier, ProceedingJoinPoint joinPoint) throws Throwable {
+        // 每1/3租约续期一次，沿用原窗口时剩余时间可能不足一个周期，首次续期相应提前
+        long period = windowMillis / 3;
+        long initialDelay = Math.max(Math.min(period, (lease.windowEnd() - lease.start()) / 2), 1L);
+        var executor = renewer;
+        if (executor == null) executor = startRenewer();
+        ScheduledFuture<?> renewal = null;
+        try {
+            renewal = executor.scheduleAtFixedRate(() -> renew(lease.key(), lease.token(), windowMillis), initialDelay, period, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 应用正在关闭，本次执行不再续期
+            log.warn("定时任务执行权续期任务提交失败，应用正在关闭：{}", lease.key());
+        }
+        boolean success = false;
+        try {
+            Object result = carrier.call(joinPoint::proceed);
+            success = true;
+            return result;
+        } finally {
+            if (renewal != null) renewal.cancel(false);
+            release(lease.key(), lease.token(), success || keepWindowOnFailure ? lease.windowEnd() - System.currentTimeMillis() : 0);
+        }
+    }
+
+    private synchronized ScheduledExecutorService startRenewer() {
+        var executor = renewer;
+        if (executor != null) return executor;
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("scheduled-task-renewer").factory());
+        if (closed) {
+            executor.shutdown();
+            return executor;
+        }
+        renewer = executor;
+        return executor;
+    }
+
+    private void renew(String key, String token, long leaseMillis) {
+        try {
+            Long renewed = stringRedisTemplate.execute(renewScript, List.of(key), token, String.valueOf(leaseMillis));
+            if (renewed == null || renewed == 0) log.warn("定时任务执行权续期失败，执行权已过期或被其他服务器获取：{}", key);
+        } catch (Exception e) {
+            log.warn("定时任务执行权续期异常，将在下次续期时重试：{}，异常信息：{}", key, e.toString());
+        }
+    }
+
+    private void release(String key, String token, long remainingWindowMillis) {
+        try {
+            stringRedisTemplate.execute(releaseScript, List.of(key), token, String.valueOf(remainingWindowMillis));
+        } catch (Exception e) {
+            log.warn("定时任务执行权释放异常，将在到期后自动释放：{}，异常信息：{}", key, e.toString());
+        }
+    }
+
+    /**
+     * 执行权
+     *
+     * @param key 任务key
+     * @param token 持有者标识：节点id:防护令牌
+     * @param fence 防护令牌
+     * @param start 抢占时间
+     * @param windowEnd 独占窗口结束时间
+     */
+    private record Lease(String key, String token, long fence, long start, long windowEnd) {}
+
     private void publishEvent(Signature signature) {
         String localIpInfo = StringUtils.hasText(port) ? IPUtils.getLocalAddr() + ":" + port : IPUtils.getLocalAddr();
         eventPublisher.publishEvent(new ScheduledHandleBeforeEvent(signature, localIpInfo));
@@ -106,11 +332,11 @@ public class ScheduledPreventConcurrencyAop implements SmartLifecycle {
     }
 
     private static final RedisScript<Void> stopScript = new DefaultRedisScript<>("""
-            local uniqueId = ARGV[1]
+            local prefix = ARGV[1] .. ':'
             local values = redis.call('MGET', unpack(KEYS))
             local keysToDel = {}
             for i, val in ipairs(values) do
-                if val == uniqueId then
+                if val and string.sub(val, 1, #prefix) == prefix then
                     table.insert(keysToDel, KEYS[i])
                 end
             end
@@ -125,6 +351,16 @@ public class ScheduledPreventConcurrencyAop implements SmartLifecycle {
         if(!keys.isEmpty()) stringRedisTemplate.execute(stopScript, new ArrayList<>(keys), uniqueId);
     }
 
+    /**
+     * 停止续期线程，在{@link #stop()}释放执行权之后执行
+     */
+    @Override
+    public synchronized void destroy() {
+        closed = true;
+        var executor = renewer;
+        if (executor != null) executor.shutdownNow();
+    }
+
     @Override
     public boolean isRunning() {
         return running;
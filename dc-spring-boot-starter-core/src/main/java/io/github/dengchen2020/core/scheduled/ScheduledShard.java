@@ -0,0 +1,33 @@
+package io.github.dengchen2020.core.scheduled;
+
+/**
+ * 定时任务分片信息，{@link DcScheduled#shards()}大于1时每次触发拆分为多个分片，由存活节点认领执行
+ *
+ * @param index 分片下标，从0开始
+ * @param total 分片总数
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public record ScheduledShard(int index, int total) {
+
+    static final ScopedValue<ScheduledShard> CURRENT = ScopedValue.newInstance();
+
+    private static final ScheduledShard ALL = new ScheduledShard(0, 1);
+
+    /**
+     * 当前执行的分片，非分片模式（包括未引入Redis）时为{@code ScheduledShard[index=0, total=1]}，即处理全部数据
+     */
+    public static ScheduledShard current() {
+        return CURRENT.orElse(ALL);
+    }
+
+    /**
+     * 判断业务id是否属于当前分片
+     * @param id 业务id
+     * @return true：属于当前分片
+     */
+    public boolean contains(long id) {
+        return Math.floorMod(id, total) == index;
+    }
+
+}
@@ -0,0 +1,41 @@
+package io.github.dengchen2020.core.scheduled;
+
+/**
+ * 定时任务指标记录
+ * <p>任务名称为"类名.方法名"</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public interface ScheduledTaskMetrics {
+
+    /**
+     * 任务执行完成
+     * @param task 任务名称
+     * @param durationNanos 执行时长（纳秒）
+     * @param success 是否执行成功
+     */
+    void executed(String task, long durationNanos, boolean success);
+
+    /**
+     * 本次触发被跳过，执行权被其他服务器持有
+     * @param task 任务名称
+     */
+    void skipped(String task);
+
+    /**
+     * 执行时长超过了调度周期，下一次触发将被推迟
+     * @param task 任务名称
+     * @param durationNanos 执行时长（纳秒）
+     * @param periodNanos 调度周期（纳秒）
+     */
+    void overrun(String task, long durationNanos, long periodNanos);
+
+    /**
+     * 计划执行时间与实际开始时间的差
+     * @param task 任务名称
+     * @param lagNanos 延迟（纳秒）
+     */
+    void lag(String task, long lagNanos);
+
+}
@@ -1,8 +1,14 @@
 package io.github.dengchen2020.core.scheduled;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.task.ThreadPoolTaskSchedulerBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
@@ -10,24 +16,31 @@ import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 
 /**
  * 定时任务自动配置
+ * <p>存在{@link ScheduledTaskMetrics}时使用{@link MeteredTaskScheduler}记录执行时长、跳过、超时和延迟</p>
  *
  * @author xiaochen
  * @since 2024/5/31
  */
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @ConditionalOnProperty(value = "dc.task.scheduling.optimize", matchIfMissing = true, havingValue = "true")
 @Configuration(proxyBeanMethods = false)
 public final class SchedulingAutoConfiguration implements SchedulingConfigurer {
 
     private final ObjectProvider<ThreadPoolTaskSchedulerBuilder> threadPoolTaskSchedulerBuilder;
 
-    SchedulingAutoConfiguration(ObjectProvider<ThreadPoolTaskSchedulerBuilder> threadPoolTaskSchedulerBuilder) {
+    private final ObjectProvider<ScheduledTaskMetrics> scheduledTaskMetrics;
+
+    SchedulingAutoConfiguration(ObjectProvider<ThreadPoolTaskSchedulerBuilder> threadPoolTaskSchedulerBuilder, ObjectProvider<ScheduledTaskMetrics> scheduledTaskMetrics) {
         this.threadPoolTaskSchedulerBuilder = threadPoolTaskSchedulerBuilder;
+        this.scheduledTaskMetrics = scheduledTaskMetrics;
     }
 
     @Override
     public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
         var builder = threadPoolTaskSchedulerBuilder.getIfAvailable();
-        ThreadPoolTaskScheduler taskScheduler = builder != null ? builder.build() : new ThreadPoolTaskScheduler();
+        var metrics = scheduledTaskMetrics.getIfAvailable();
+        ThreadPoolTaskScheduler taskScheduler = metrics != null ? new MeteredTaskScheduler(metrics) : new ThreadPoolTaskScheduler();
+        if (builder != null) taskScheduler = builder.configure(taskScheduler);
         int size = taskRegistrar.getCronTaskList().size() + taskRegistrar.getFixedDelayTaskList().size() + taskRegistrar.getFixedRateTaskList().size() + taskRegistrar.getTriggerTaskList().size();
         taskScheduler.setPoolSize(size == 0 ? 1 : size);
        // taskScheduler.setThreadFactory(Thread.ofVirtual().name(taskScheduler.getThreadNamePrefix(),0).factory()); // 与setVirtualThreads效果一致
@@ -36,4 +49,21 @@ public final class SchedulingAutoConfiguration implements SchedulingConfigurer {
         taskRegistrar.setScheduler(taskScheduler); // 使用虚拟线程时确保cron和fixedRate能等待上一次任务执行完成后再执行下一次任务的关键设置
     }
 
+    /**
+     * 引入Micrometer且存在{@link MeterRegistry}时记录定时任务指标
+     */
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnProperty(value = "dc.task.scheduling.metrics.enabled", matchIfMissing = true, havingValue = "true")
+    @Configuration(proxyBeanMethods = false)
+    static final class ScheduledTaskMetricsConfiguration {
+
+        @ConditionalOnMissingBean
+        @ConditionalOnBean(MeterRegistry.class)
+        @Bean
+        ScheduledTaskMetrics scheduledTaskMetrics(MeterRegistry meterRegistry) {
+            return new MicrometerScheduledTaskMetrics(meterRegistry);
+        }
+
+    }
+
 }
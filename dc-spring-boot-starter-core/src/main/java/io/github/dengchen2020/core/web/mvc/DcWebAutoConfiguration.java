@@ -3,6 +3,7 @@ package io.github.dengchen2020.core.web.mvc;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Scheduler;
 import io.github.dengchen2020.core.filter.DcShallowEtagHeaderFilter;
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.core.properties.DcCorsProperties;
 import io.github.dengchen2020.core.properties.DcETagProperties;
 import jakarta.servlet.http.HttpServletRequest;
@@ -10,6 +11,8 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.jspecify.annotations.NullMarked;
 import org.jspecify.annotations.Nullable;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
 import org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
@@ -43,6 +46,7 @@ import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExceptionResolver;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 import org.springframework.web.servlet.resource.CachingResourceTransformer;
 import org.springframework.web.servlet.resource.EncodedResourceResolver;
 import org.springframework.web.servlet.resource.ResourceHandlerUtils;
@@ -135,6 +139,24 @@ public final class DcWebAutoConfiguration implements WebMvcConfigurer, Applicati
         return filterRegistrationBean;
     }
 
+    /**
+     * 控制器方法的注解元数据，由各拦截器共享
+     */
+    @ConditionalOnMissingBean
+    @Bean
+    HandlerMethodMetadataRegistry handlerMethodMetadataRegistry() {
+        return new HandlerMethodMetadataRegistry();
+    }
+
+    /**
+     * 启动时为所有控制器方法创建注解元数据并执行各拦截器注册的初始化回调，请求时拦截器无需再反射获取注解，
+     * 启动时只在这里遍历一次所有接口
+     */
+    @Bean
+    SmartInitializingSingleton handlerMethodMetadataInitializer(HandlerMethodMetadataRegistry handlerMethodMetadataRegistry, ObjectProvider<RequestMappingHandlerMapping> handlerMappings) {
+        return () -> handlerMappings.orderedStream().forEach(mapping -> mapping.getHandlerMethods().values().forEach(handlerMethodMetadataRegistry::get));
+    }
+
     @EnableConfigurationProperties(DcETagProperties.class)
     @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
     @ConditionalOnProperty(value = "dc.etag.enabled", havingValue = "true")
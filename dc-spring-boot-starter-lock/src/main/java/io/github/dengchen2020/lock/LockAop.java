@@ -1,63 +1,199 @@
 package io.github.dengchen2020.lock;
 
+import io.github.dengchen2020.lock.annotation.DSemaphore;
 import io.github.dengchen2020.lock.annotation.Lock;
+import io.github.dengchen2020.lock.annotation.LockType;
+import io.github.dengchen2020.lock.api.DLock;
 import io.github.dengchen2020.lock.exception.LockException;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
-import org.springframework.context.expression.MethodBasedEvaluationContext;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
 import org.springframework.core.DefaultParameterNameDiscoverer;
 import org.springframework.core.Ordered;
 import org.springframework.core.ParameterNameDiscoverer;
-import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
 import org.springframework.expression.ExpressionParser;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelParserConfiguration;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
 
-import static io.github.dengchen2020.lock.api.DLock.LOCK_GLOBAL_PREFIX;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 锁注解实现
+ * <p>启动完成前检查所有Bean中{@link Lock}的锁类型，当前实现不支持时（如{@code RedisLock}的读写锁）启动失败</p>
  *
  * @author xiaochen
  * @since 2024/7/1
  */
 @Aspect
-public class LockAop implements Ordered {
+public class LockAop implements Ordered, SmartInitializingSingleton, BeanFactoryAware {
 
-    private final RedissonClient redissonClient;
+    private final DLock dLock;
 
-    public LockAop(RedissonClient redissonClient) {
-        this.redissonClient = redissonClient;
+    private ListableBeanFactory beanFactory;
+
+    public LockAop(DLock dLock) {
+        this.dLock = dLock;
+    }
+
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (beanFactory instanceof ListableBeanFactory listableBeanFactory) this.beanFactory = listableBeanFactory;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (beanFactory == null) return;
+        boolean supportsAll = true;
+        for (LockType type : LockType.values()) supportsAll &= dLock.supports(type);
+        if (supportsAll) return;
+        List<String> unsupported = new ArrayList<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            Class<?> beanType = beanFactory.getType(beanName, false);
+            if (beanType == null) continue;
+            ReflectionUtils.doWithMethods(ClassUtils.getUserClass(beanType), method -> {
+                Lock lock = method.getAnnotation(Lock.class);
+                if (lock != null && !dLock.supports(lock.type())) unsupported.add(method.toGenericString() + "（" + lock.type() + "）");
+            });
+        }
+        if (!unsupported.isEmpty()) {
+            throw new IllegalStateException(dLock.getClass().getSimpleName() + "不支持以下方法@Lock的锁类型，请使用RedissonLock：" + String.join("，", unsupported));
+        }
     }
 
     private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
-    private final ExpressionParser parser = new SpelExpressionParser();
+    // MIXED模式：表达式执行若干次后编译为字节码，编译后执行失败时自动回退为解释执行
+    private final ExpressionParser parser = new SpelExpressionParser(new SpelParserConfiguration(SpelCompilerMode.MIXED, LockAop.class.getClassLoader()));
+
+    /**
+     * 方法 -> 锁key解析器，首次调用时解析表达式和参数名，之后每次调用只需执行表达式
+     */
+    private final Map<Method, LockKeyResolver> resolverCache = new ConcurrentHashMap<>();
+
+    /**
+     * 方法 -> 信号量key解析器
+     */
+    private final Map<Method, LockKeyResolver> semaphoreResolverCache = new ConcurrentHashMap<>();
 
     @Around(value = "@annotation(lock)")
     public Object handle(ProceedingJoinPoint joinPoint, Lock lock) throws Throwable {
-        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
-        RLock rLock;
-        if (lock.value().isBlank()) {
-            rLock = lock.name().isBlank() ? redissonClient.getLock(LOCK_GLOBAL_PREFIX + signature.toString()) : redissonClient.getLock(LOCK_GLOBAL_PREFIX + lock.name());
-        } else {
-            Object[] args = joinPoint.getArgs();
-            EvaluationContext context = new MethodBasedEvaluationContext(args.length != 1 ? null : args[0] , signature.getMethod(), args, parameterNameDiscoverer);
-            String lockKey = parser.parseExpression(lock.value()).getValue(context, String.class);
-            rLock = lock.name().isBlank() ? redissonClient.getLock(LOCK_GLOBAL_PREFIX + signature + ":" + lockKey) : redissonClient.getLock(LOCK_GLOBAL_PREFIX + lock.name() + ":" + lockKey);
-        }
-        try {
-            if (rLock.tryLock(lock.waitTime(), lock.lockTime(), lock.timeUnit())) {
+        Object resolved = getLockResolver(joinPoint, lock).resolve(joinPoint.getArgs());
+        if (resolved instanceof String lockKey) {
+            if (!dLock.tryLock(lockKey, lock.type(), lock.waitTime(), lock.lockTime(), lock.timeUnit())) throw new LockException(lock.errorMsg());
+            try {
                 return joinPoint.proceed();
-            } else {
-                throw new LockException(lock.errorMsg());
+            } finally {
+                dLock.unlock(lockKey, lock.type());
             }
+        }
+        @SuppressWarnings("unchecked")
+        List<String> lockKeys = (List<String>) resolved;
+        if (!dLock.tryLockAll(lockKeys, lock.type(), lock.waitTime(), lock.lockTime(), lock.timeUnit())) throw new LockException(lock.errorMsg());
+        try {
+            return joinPoint.proceed();
+        } finally {
+            dLock.unlockAll(lockKeys, lock.type());
+        }
+    }
+
+    @Around(value = "@annotation(semaphore)")
+    public Object handleSemaphore(ProceedingJoinPoint joinPoint, DSemaphore semaphore) throws Throwable {
+        if (!(getResolver(semaphoreResolverCache, joinPoint, semaphore.name(), semaphore.value()).resolve(joinPoint.getArgs()) instanceof String key)) {
+            throw new IllegalArgumentException("@DSemaphore不支持多个key：" + semaphore.value());
+        }
+        String permitId = dLock.tryAcquire(key, semaphore.permits(), semaphore.waitTime(), semaphore.leaseTime(), semaphore.timeUnit());
+        if (permitId == null) throw new LockException(semaphore.errorMsg());
+        try {
+            return joinPoint.proceed();
         } finally {
-            if (rLock.isLocked() && rLock.isHeldByCurrentThread()) {
-                rLock.unlock();
+            dLock.release(key, permitId);
+        }
+    }
+
+    /**
+     * 获取锁key解析器，首次解析时检查锁类型，覆盖启动时未检查到的Bean（如非单例Bean）
+     */
+    private LockKeyResolver getLockResolver(ProceedingJoinPoint joinPoint, Lock lock) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        LockKeyResolver resolver = resolverCache.get(signature.getMethod());
+        if (resolver != null) return resolver;
+        if (!dLock.supports(lock.type())) {
+            throw new IllegalStateException(dLock.getClass().getSimpleName() + "不支持" + signature.getMethod().toGenericString() + "的锁类型：" + lock.type() + "，请使用RedissonLock");
+        }
+        return getResolver(resolverCache, joinPoint, lock.name(), lock.value());
+    }
+
+    private LockKeyResolver getResolver(Map<Method, LockKeyResolver> cache, ProceedingJoinPoint joinPoint, String name, String value) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Method method = signature.getMethod();
+        LockKeyResolver resolver = cache.get(method);
+        if (resolver == null) resolver = cache.computeIfAbsent(method, _ -> createResolver(signature, name, value));
+        return resolver;
+    }
+
+    private LockKeyResolver createResolver(MethodSignature signature, String name, String value) {
+        String prefix = name.isBlank() ? signature.toString() : name;
+        if (value.isBlank()) return new LockKeyResolver(prefix, null, new String[0]);
+        Method method = signature.getMethod();
+        String[] parameterNames = parameterNameDiscoverer.getParameterNames(method);
+        // 与MethodBasedEvaluationContext一致，支持#p0、#a0和参数名三种方式引用参数
+        String[] variableNames = new String[method.getParameterCount() * 3];
+        for (int i = 0; i < method.getParameterCount(); i++) {
+            variableNames[i * 3] = "p" + i;
+            variableNames[i * 3 + 1] = "a" + i;
+            variableNames[i * 3 + 2] = parameterNames != null && i < parameterNames.length ? parameterNames[i] : null;
+        }
+        return new LockKeyResolver(prefix + ":", parser.parseExpression(value), variableNames);
+    }
+
+    /**
+     * 锁key解析器
+     *
+     * @param prefix 锁key前缀（不含全局前缀）
+     * @param expression 已解析的SpEL表达式，为null表示锁key固定为prefix
+     * @param variableNames 每个参数依次对应3个变量名：p{i}、a{i}、参数名（不可获取时为null）
+     */
+    private record LockKeyResolver(String prefix, Expression expression, String[] variableNames) {
+
+        /**
+         * 解析锁key
+         * @return 单个锁key（String），表达式结果为集合或数组时为多个锁key（List&lt;String&gt;）
+         */
+        Object resolve(Object[] args) {
+            if (expression == null) return prefix;
+            StandardEvaluationContext context = new StandardEvaluationContext(args.length != 1 ? null : args[0]);
+            for (int i = 0; i < args.length && i * 3 < variableNames.length; i++) {
+                context.setVariable(variableNames[i * 3], args[i]);
+                context.setVariable(variableNames[i * 3 + 1], args[i]);
+                if (variableNames[i * 3 + 2] != null) context.setVariable(variableNames[i * 3 + 2], args[i]);
             }
+            Object value = expression.getValue(context);
+            if (value instanceof Collection<?> collection) return toLockKeys(collection.toArray());
+            if (value != null && value.getClass().isArray()) return toLockKeys(ObjectUtils.toObjectArray(value));
+            return prefix + (value instanceof String str ? str : String.valueOf(value));
+        }
+
+        private List<String> toLockKeys(Object[] values) {
+            if (values.length == 0) throw new IllegalArgumentException("锁key表达式的结果不能为空集合：" + expression.getExpressionString());
+            List<String> lockKeys = new ArrayList<>(values.length);
+            for (Object value : values) lockKeys.add(prefix + value);
+            return lockKeys;
         }
     }
 
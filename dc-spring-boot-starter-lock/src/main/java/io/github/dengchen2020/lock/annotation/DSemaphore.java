@@ -0,0 +1,51 @@
+package io.github.dengchen2020.lock.annotation;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分布式信号量注解，限制同一key在所有节点同时执行的数量，适合保护脆弱的下游资源
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+public @interface DSemaphore {
+
+    /**
+     * 信号量的key，为空默认为目标方法的toString()值，支持SpringEl表达式（如#p0，#a0，#obj.id，#id等）解析方法参数转化为key
+     */
+    String value() default "";
+
+    /**
+     * 限制的资源名称
+     */
+    String name() default "";
+
+    /**
+     * 许可总数，即同时执行的最大数量，仅在信号量首次创建时生效
+     */
+    int permits() default 10;
+
+    /**
+     * 等待获取许可的时长
+     */
+    long waitTime() default -1;
+
+    /**
+     * 许可的租约时长，到期后自动释放，避免节点宕机后许可被永久占用（为-1表示不过期）
+     */
+    long leaseTime() default 60;
+
+    /**
+     * 时间单位，默认秒
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 异常提示
+     */
+    String errorMsg() default "请求人数过多，请稍后再试";
+
+}
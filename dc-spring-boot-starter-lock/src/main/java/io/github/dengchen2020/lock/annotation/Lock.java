@@ -15,6 +15,7 @@ public @interface Lock {
 
     /**
      * 锁的key，为空默认为目标方法的toString()值，支持SpringEl表达式（如#p0，#a0，#obj.id，#id等）解析方法参数转化为key
+     * <p>表达式结果为集合或数组时同时锁定多个key（如{#from, #to}），key排序后一起加锁、一起释放</p>
      */
     String value() default "";
 
@@ -38,6 +39,11 @@ public @interface Lock {
      */
     TimeUnit timeUnit() default TimeUnit.SECONDS;
 
+    /**
+     * 锁类型，读锁之间可同时持有，读写锁与互斥锁使用不同的key互不影响
+     */
+    LockType type() default LockType.exclusive;
+
     /**
      * 异常提示
      */
@@ -0,0 +1,26 @@
+package io.github.dengchen2020.lock.annotation;
+
+/**
+ * 锁类型
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public enum LockType {
+
+    /**
+     * 互斥锁
+     */
+    exclusive,
+
+    /**
+     * 读锁，多个读锁可同时持有，与写锁互斥
+     */
+    read,
+
+    /**
+     * 写锁，与读锁、写锁互斥
+     */
+    write
+
+}
@@ -0,0 +1,560 @@
+package io.github.dengchen2020.lock.api;
+
+import io.github.dengchen2020.lock.annotation.LockType;
+import io.github.dengchen2020.lock.exception.LockException;
+import io.github.dengchen2020.lock.metrics.LockMetrics;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 分布式锁通用实现，负责本地key锁、多key排序、时间换算和各种便捷方法，子类只需实现分布式锁原语
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public abstract class AbstractDLock implements DLock {
+
+    /**
+     * 未指定租约时长时信号量许可的租约时长（毫秒），与{@code @DSemaphore}默认一致
+     */
+    private static final long DEFAULT_SEMAPHORE_LEASE_MILLIS = 60_000L;
+
+    protected final LocalKeyLock localLock;
+
+    protected final LockMetrics metrics;
+
+    // 当前线程持有的锁 -> {获取时间, 重入次数}，用于统计持有时长，未开启指标时不使用
+    private final ThreadLocal<Map<String, long[]>> holdStarts = ThreadLocal.withInitial(HashMap::new);
+
+    /**
+     * @param localLock 本地key锁，不为null时先获取本地锁再获取分布式锁
+     */
+    protected AbstractDLock(LocalKeyLock localLock) {
+        this(localLock, null);
+    }
+
+    /**
+     * @param localLock 本地key锁，不为null时先获取本地锁再获取分布式锁
+     * @param metrics 锁指标，为null时不统计
+     */
+    protected AbstractDLock(LocalKeyLock localLock, LockMetrics metrics) {
+        this.localLock = localLock;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 尝试获取分布式锁
+     *
+     * @param key 锁key（不含全局前缀）
+     * @param type 锁类型
+     * @param waitMillis 等待时长（毫秒），小于等于0表示不等待
+     * @param leaseMillis 持有时长（毫秒），-1表示自动续期直到解锁
+     */
+    protected abstract boolean doTryLock(String key, LockType type, long waitMillis, long leaseMillis) throws InterruptedException;
+
+    /**
+     * 阻塞获取分布式锁直到成功
+     */
+    protected abstract void doLock(String key, LockType type);
+
+    /**
+     * 释放分布式锁，锁已过期或不被当前线程持有时忽略
+     */
+    protected abstract void doUnlock(String key, LockType type);
+
+    /**
+     * 尝试同时获取多个分布式锁，任一获取失败则全部释放
+     * @param sortedKeys 去重排序后的锁key，至少2个
+     */
+    protected abstract boolean doTryLockAll(List<String> sortedKeys, LockType type, long waitMillis, long leaseMillis) throws InterruptedException;
+
+    /**
+     * 阻塞同时获取多个分布式锁直到成功
+     * @param sortedKeys 去重排序后的锁key，至少2个
+     */
+    protected abstract void doLockAll(List<String> sortedKeys, LockType type);
+
+    /**
+     * 读锁之间不互斥，不经过本地key锁
+     */
+    private boolean useLocalLock(LockType type) {
+        return localLock != null && type != LockType.read;
+    }
+
+    private static long toWaitMillis(long waitTime, TimeUnit unit) {
+        return waitTime > 0 ? unit.toMillis(waitTime) : waitTime;
+    }
+
+    private static long toLeaseMillis(long leaseTime, TimeUnit unit) {
+        return leaseTime > 0 ? unit.toMillis(leaseTime) : leaseTime;
+    }
+
+    /**
+     * 尝试加互斥锁，见{@link #tryLock(String, LockType, long, long, TimeUnit)}
+     */
+    public boolean tryLock(String key, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        return tryLock(key, LockType.exclusive, waitTime, leaseTime, unit);
+    }
+
+    /**
+     * 尝试加锁，开启本地key锁时先获取本地锁（读锁除外），本地锁的等待时间计入总等待时间
+     */
+    @Override
+    public boolean tryLock(String key, LockType type, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        if (metrics == null) return acquire(key, type, waitTime, leaseTime, unit);
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = acquire(key, type, waitTime, leaseTime, unit);
+        } catch (InterruptedException | RuntimeException e) {
+            metrics.failed(LockMetrics.nameOf(key), System.nanoTime() - start, LockMetrics.ERROR);
+            throw e;
+        }
+        recordAcquire(LockMetrics.nameOf(key), type + key, start, locked, waitTime);
+        return locked;
+    }
+
+    private boolean acquire(String key, LockType type, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        if (!useLocalLock(type)) return doTryLock(key, type, toWaitMillis(waitTime, unit), toLeaseMillis(leaseTime, unit));
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(waitTime, 0));
+        if (waitTime > 0 ? !localLock.tryLock(key, waitTime, unit) : !localLock.tryLock(key)) return false;
+        boolean locked = false;
+        try {
+            // 剩余等待时间统一换算为毫秒，避免粗粒度时间单位下被截断为0
+            long remainingMillis = waitTime > 0 ? TimeUnit.NANOSECONDS.toMillis(Math.max(deadline - System.nanoTime(), 0)) : waitTime;
+            locked = doTryLock(key, type, remainingMillis, toLeaseMillis(leaseTime, unit));
+            return locked;
+        } finally {
+            if (!locked) localLock.unlock(key);
+        }
+    }
+
+    /**
+     * 阻塞加互斥锁直到成功
+     * @param key 锁key（不含全局前缀）
+     */
+    public void lock(String key) {
+        lock(key, LockType.exclusive);
+    }
+
+    /**
+     * 阻塞加锁直到成功，开启本地key锁时先获取本地锁（读锁除外）
+     */
+    @Override
+    public void lock(String key, LockType type) {
+        long start = System.nanoTime();
+        try {
+            acquire(key, type);
+        } catch (RuntimeException e) {
+            if (metrics != null) metrics.failed(LockMetrics.nameOf(key), System.nanoTime() - start, LockMetrics.ERROR);
+            throw e;
+        }
+        if (metrics != null) recordAcquire(LockMetrics.nameOf(key), type + key, start, true, -1);
+    }
+
+    private void acquire(String key, LockType type) {
+        if (!useLocalLock(type)) {
+            doLock(key, type);
+            return;
+        }
+        localLock.lock(key);
+        boolean locked = false;
+        try {
+            doLock(key, type);
+            locked = true;
+        } finally {
+            if (!locked) localLock.unlock(key);
+        }
+    }
+
+    /**
+     * 释放互斥锁，只能由加锁成功的线程调用
+     * @param key 锁key（不含全局前缀）
+     */
+    public void unlock(String key) {
+        unlock(key, LockType.exclusive);
+    }
+
+    @Override
+    public void unlock(String key, LockType type) {
+        if (metrics != null) recordRelease(LockMetrics.nameOf(key), type + key);
+        try {
+            doUnlock(key, type);
+        } finally {
+            if (useLocalLock(type)) localLock.unlock(key);
+        }
+    }
+
+    /**
+     * 尝试同时加多个互斥锁，见{@link #tryLockAll(Collection, LockType, long, long, TimeUnit)}
+     */
+    public boolean tryLockAll(Collection<String> keys, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        return tryLockAll(keys, LockType.exclusive, waitTime, leaseTime, unit);
+    }
+
+    /**
+     * 尝试同时锁定多个key，key去重排序后加锁，所有调用方按相同顺序加锁，避免死锁
+     * <p>开启本地key锁时同样按排序后的顺序获取每个key的本地锁</p>
+     */
+    @Override
+    public boolean tryLockAll(Collection<String> keys, LockType type, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        List<String> sortedKeys = sortKeys(keys);
+        if (sortedKeys.size() == 1) return tryLock(sortedKeys.getFirst(), type, waitTime, leaseTime, unit);
+        if (metrics == null) return acquireAll(sortedKeys, type, waitTime, leaseTime, unit);
+        // 多key加锁统一以固定名称统计
+        long start = System.nanoTime();
+        boolean locked;
+        try {
+            locked = acquireAll(sortedKeys, type, waitTime, leaseTime, unit);
+        } catch (InterruptedException | RuntimeException e) {
+            metrics.failed(LockMetrics.MULTI_NAME, System.nanoTime() - start, LockMetrics.ERROR);
+            throw e;
+        }
+        recordAcquire(LockMetrics.MULTI_NAME, multiHoldKey(type, sortedKeys), start, locked, waitTime);
+        return locked;
+    }
+
+    private boolean acquireAll(List<String> sortedKeys, LockType type, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        if (!useLocalLock(type)) return doTryLockAll(sortedKeys, type, toWaitMillis(waitTime, unit), toLeaseMillis(leaseTime, unit));
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(waitTime, 0));
+        int acquired = 0;
+        boolean locked = false;
+        try {
+            for (String key : sortedKeys) {
+                long remainingNanos = deadline - System.nanoTime();
+                if (waitTime > 0 ? !localLock.tryLock(key, Math.max(remainingNanos, 0), TimeUnit.NANOSECONDS) : !localLock.tryLock(key)) return false;
+                acquired++;
+            }
+            long remainingMillis = waitTime > 0 ? TimeUnit.NANOSECONDS.toMillis(Math.max(deadline - System.nanoTime(), 0)) : waitTime;
+            locked = doTryLockAll(sortedKeys, type, remainingMillis, toLeaseMillis(leaseTime, unit));
+            return locked;
+        } finally {
+            if (!locked) {
+                for (int i = acquired - 1; i >= 0; i--) localLock.unlock(sortedKeys.get(i));
+            }
+        }
+    }
+
+    /**
+     * 阻塞同时锁定多个互斥锁直到成功
+     * @param keys 锁key（不含全局前缀）
+     */
+    public void lockAll(Collection<String> keys) {
+        List<String> sortedKeys = sortKeys(keys);
+        if (sortedKeys.size() == 1) {
+            lock(sortedKeys.getFirst());
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            acquireAll(sortedKeys);
+        } catch (RuntimeException e) {
+            if (metrics != null) metrics.failed(LockMetrics.MULTI_NAME, System.nanoTime() - start, LockMetrics.ERROR);
+            throw e;
+        }
+        if (metrics != null) recordAcquire(LockMetrics.MULTI_NAME, multiHoldKey(LockType.exclusive, sortedKeys), start, true, -1);
+    }
+
+    private void acquireAll(List<String> sortedKeys) {
+        if (localLock == null) {
+            doLockAll(sortedKeys, LockType.exclusive);
+            return;
+        }
+        int acquired = 0;
+        boolean locked = false;
+        try {
+            for (String key : sortedKeys) {
+                localLock.lock(key);
+                acquired++;
+            }
+            doLockAll(sortedKeys, LockType.exclusive);
+            locked = true;
+        } finally {
+            if (!locked) {
+                for (int i = acquired - 1; i >= 0; i--) localLock.unlock(sortedKeys.get(i));
+            }
+        }
+    }
+
+    /**
+     * 释放同时锁定的多个互斥锁，见{@link #unlockAll(Collection, LockType)}
+     */
+    public void unlockAll(Collection<String> keys) {
+        unlockAll(keys, LockType.exclusive);
+    }
+
+    @Override
+    public void unlockAll(Collection<String> keys, LockType type) {
+        List<String> sortedKeys = sortKeys(keys);
+        if (sortedKeys.size() == 1) {
+            unlock(sortedKeys.getFirst(), type);
+            return;
+        }
+        if (metrics != null) recordRelease(LockMetrics.MULTI_NAME, multiHoldKey(type, sortedKeys));
+        try {
+            // 逐个解锁，已过期的锁跳过，不因单个锁失效导致其他锁无法释放
+            for (int i = sortedKeys.size() - 1; i >= 0; i--) doUnlock(sortedKeys.get(i), type);
+        } finally {
+            if (useLocalLock(type)) {
+                for (int i = sortedKeys.size() - 1; i >= 0; i--) localLock.unlock(sortedKeys.get(i));
+            }
+        }
+    }
+
+    /**
+     * @param name 锁名称
+     * @param holdKey 统计持有时长的key：锁类型+锁key，多key加锁为锁类型+所有锁key
+     */
+    private void recordAcquire(String name, String holdKey, long start, boolean locked, long waitTime) {
+        long waitNanos = System.nanoTime() - start;
+        if (!locked) {
+            metrics.failed(name, waitNanos, waitTime > 0 ? LockMetrics.TIMEOUT : LockMetrics.REJECTED);
+            return;
+        }
+        metrics.acquired(name, waitNanos);
+        long[] hold = holdStarts.get().computeIfAbsent(holdKey, _ -> new long[]{System.nanoTime(), 0});
+        hold[1]++;
+    }
+
+    /**
+     * 重入的锁在最外层解锁时统计持有时长
+     */
+    private void recordRelease(String name, String holdKey) {
+        Map<String, long[]> holds = holdStarts.get();
+        long[] hold = holds.get(holdKey);
+        if (hold == null || --hold[1] > 0) return;
+        holds.remove(holdKey);
+        metrics.released(name, System.nanoTime() - hold[0]);
+    }
+
+    private static String multiHoldKey(LockType type, List<String> sortedKeys) {
+        return type + "[" + String.join(",", sortedKeys) + "]";
+    }
+
+    /**
+     * 解锁时发现锁已不被当前持有者持有（已过期），由子类调用
+     * @param key 锁key（不含全局前缀）
+     */
+    protected void leaseExpired(String key) {
+        if (metrics != null) metrics.leaseExpired(LockMetrics.nameOf(key));
+    }
+
+    private static List<String> sortKeys(Collection<String> keys) {
+        if (keys.isEmpty()) throw new IllegalArgumentException("锁key不能为空");
+        return keys.stream().distinct().sorted().toList();
+    }
+
+    protected LockException defaultException() {
+        throw new LockException("请求人数过多，请稍后再试");
+    }
+
+    @Override
+    public <T> T tryLockAndRun(String key, Callable<T> callable) throws Throwable {
+        if (!tryLock(key, -1, -1, TimeUnit.SECONDS)) throw defaultException();
+        try {
+            return callable.call();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> tryLockAsyncAndRun(String key, long waitTime, TimeUnit unit, Supplier<? extends CompletionStage<T>> action) {
+        long ownerId = DLock.newOwnerId();
+        return tryLockAsync(key, waitTime, -1, unit, ownerId).thenCompose(locked -> {
+            if (!locked) throw defaultException();
+            CompletionStage<T> stage;
+            try {
+                stage = action.get();
+            } catch (RuntimeException e) {
+                unlockAsync(key, ownerId);
+                throw e;
+            }
+            // 等待解锁完成后再将结果交给调用方
+            return stage.handle((result, error) -> unlockAsync(key, ownerId).handle((_, _) -> {
+                if (error != null) throw error instanceof CompletionException ce ? ce : new CompletionException(error);
+                return result;
+            })).thenCompose(Function.identity());
+        });
+    }
+
+    @Override
+    public void tryLockAndRun(String key, Runnable runnable) {
+        boolean locked;
+        try {
+            locked = tryLock(key, -1, -1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw defaultException();
+        }
+        if (!locked) throw defaultException();
+        try {
+            runnable.run();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    public void tryLockAndRun(String key, Runnable runnable, Runnable failRunnable) {
+        boolean locked;
+        try {
+            locked = tryLock(key, -1, -1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+        if (!locked) {
+            if (failRunnable != null) failRunnable.run();
+            return;
+        }
+        try {
+            runnable.run();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    @Override
+    public void tryLockAndRun(String key, long waitTime, TimeUnit unit, Runnable runnable) throws InterruptedException {
+        tryLockAndRun(key, waitTime, -1, unit, runnable);
+    }
+
+    @Override
+    public <T> T tryLockAndRun(String key, long waitTime, TimeUnit unit, Callable<T> callable) throws Throwable {
+        return tryLockAndRun(key, waitTime, -1, unit, callable);
+    }
+
+    public <T> T tryLockAndRun(String key, long waitTime, long leaseTime, TimeUnit unit, Callable<T> callable) throws Throwable {
+        if (!tryLock(key, waitTime, leaseTime, unit)) throw defaultException();
+        try {
+            return callable.call();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    public void tryLockAndRun(String key, long waitTime, long leaseTime, TimeUnit unit, Runnable runnable) throws InterruptedException {
+        if (!tryLock(key, waitTime, leaseTime, unit)) throw defaultException();
+        try {
+            runnable.run();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    @Override
+    public void lockAndRun(String key, Runnable runnable) {
+        lock(key);
+        try {
+            runnable.run();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    @Override
+    public <T> T lockAndRun(String key, Callable<T> callable) throws Throwable {
+        lock(key);
+        try {
+            return callable.call();
+        } finally {
+            unlock(key);
+        }
+    }
+
+    @Override
+    public void lockAllAndRun(Collection<String> keys, Runnable runnable) {
+        lockAll(keys);
+        try {
+            runnable.run();
+        } finally {
+            unlockAll(keys);
+        }
+    }
+
+    @Override
+    public <T> T lockAllAndRun(Collection<String> keys, Callable<T> callable) throws Throwable {
+        lockAll(keys);
+        try {
+            return callable.call();
+        } finally {
+            unlockAll(keys);
+        }
+    }
+
+    @Override
+    public <T> T tryLockAllAndRun(Collection<String> keys, long waitTime, TimeUnit unit, Callable<T> callable) throws Throwable {
+        if (!tryLockAll(keys, waitTime, -1, unit)) throw defaultException();
+        try {
+            return callable.call();
+        } finally {
+            unlockAll(keys);
+        }
+    }
+
+    @Override
+    public void readLockAndRun(String key, Runnable runnable) {
+        lock(key, LockType.read);
+        try {
+            runnable.run();
+        } finally {
+            unlock(key, LockType.read);
+        }
+    }
+
+    @Override
+    public <T> T readLockAndRun(String key, Callable<T> callable) throws Throwable {
+        lock(key, LockType.read);
+        try {
+            return callable.call();
+        } finally {
+            unlock(key, LockType.read);
+        }
+    }
+
+    @Override
+    public void writeLockAndRun(String key, Runnable runnable) {
+        lock(key, LockType.write);
+        try {
+            runnable.run();
+        } finally {
+            unlock(key, LockType.write);
+        }
+    }
+
+    @Override
+    public <T> T writeLockAndRun(String key, Callable<T> callable) throws Throwable {
+        lock(key, LockType.write);
+        try {
+            return callable.call();
+        } finally {
+            unlock(key, LockType.write);
+        }
+    }
+
+    @Override
+    public <T> T tryAcquireAndRun(String key, int permits, long waitTime, TimeUnit unit, Callable<T> callable) throws Throwable {
+        return tryAcquireAndRun(key, permits, toWaitMillis(waitTime, unit), DEFAULT_SEMAPHORE_LEASE_MILLIS, TimeUnit.MILLISECONDS, callable);
+    }
+
+    @Override
+    public <T> T tryAcquireAndRun(String key, int permits, long waitTime, long leaseTime, TimeUnit unit, Callable<T> callable) throws Throwable {
+        String permitId = tryAcquire(key, permits, waitTime, leaseTime, unit);
+        if (permitId == null) throw defaultException();
+        try {
+            return callable.call();
+        } finally {
+            release(key, permitId);
+        }
+    }
+}
@@ -1,7 +1,14 @@
 package io.github.dengchen2020.lock.api;
 
+import io.github.dengchen2020.lock.annotation.LockType;
+
+import java.util.Collection;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * 锁的简单接口
@@ -12,6 +19,106 @@ public interface DLock {
 
     String LOCK_GLOBAL_PREFIX = "dc:lock:";
 
+    String RW_LOCK_GLOBAL_PREFIX = "dc:rwlock:";
+
+    String SEMAPHORE_GLOBAL_PREFIX = "dc:semaphore:";
+
+    /**
+     * 是否支持指定的锁类型，不支持时加锁会抛出{@link UnsupportedOperationException}
+     */
+    default boolean supports(LockType type) {
+        return true;
+    }
+
+    /**
+     * 尝试加锁
+     *
+     * @param key 锁key（不含全局前缀）
+     * @param type 锁类型
+     * @param waitTime 等待获取锁的时长，小于等于0表示不等待
+     * @param leaseTime 持有锁的时长，-1表示自动续期直到解锁
+     * @param unit 时间单位
+     * @return true：加锁成功，之后必须调用{@link #unlock(String, LockType)}
+     */
+    boolean tryLock(String key, LockType type, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 阻塞加锁直到成功
+     */
+    void lock(String key, LockType type);
+
+    /**
+     * 解锁，只能由加锁成功的线程调用
+     * @param type 锁类型，与加锁时一致
+     */
+    void unlock(String key, LockType type);
+
+    /**
+     * 尝试同时锁定多个key，key去重排序后加锁，任一key获取失败则全部释放
+     * @return true：加锁成功，之后必须调用{@link #unlockAll(Collection, LockType)}
+     */
+    boolean tryLockAll(Collection<String> keys, LockType type, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 释放同时锁定的多个key，只能由加锁成功的线程调用
+     * @param keys 锁key，与加锁时一致
+     * @param type 锁类型，与加锁时一致
+     */
+    void unlockAll(Collection<String> keys, LockType type);
+
+    /**
+     * 尝试获取一个信号量许可，许可在租约到期后自动释放
+     *
+     * @param key 信号量key（不含全局前缀）
+     * @param permits 许可总数
+     * @param waitTime 等待获取许可的时长，小于等于0表示不等待
+     * @param leaseTime 许可的租约时长，-1表示不过期
+     * @param unit 时间单位
+     * @return 许可id，为null表示获取失败，成功后必须调用{@link #release(String, String)}
+     */
+    String tryAcquire(String key, int permits, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * 释放信号量许可，许可已过期时忽略
+     */
+    void release(String key, String permitId);
+
+    /**
+     * 异步尝试加互斥锁，等待期间不占用线程，锁释放时由释放通知唤醒后重试
+     * <p>异步锁不绑定线程，由ownerId标识持有者，可在任意线程解锁，不经过本地key锁</p>
+     *
+     * @param key 锁key（不含全局前缀）
+     * @param waitTime 等待获取锁的时长，小于等于0表示不等待
+     * @param leaseTime 持有锁的时长，-1表示自动续期直到解锁
+     * @param unit 时间单位
+     * @param ownerId 持有者标识，解锁时传入相同的值，相同ownerId可重入，建议使用{@link #newOwnerId()}生成
+     * @return true：加锁成功，之后必须调用{@link #unlockAsync(String, long)}；取消返回的future即放弃等待
+     */
+    CompletableFuture<Boolean> tryLockAsync(String key, long waitTime, long leaseTime, TimeUnit unit, long ownerId);
+
+    /**
+     * 异步加互斥锁直到成功，见{@link #tryLockAsync(String, long, long, TimeUnit, long)}
+     */
+    CompletableFuture<Void> lockAsync(String key, long leaseTime, TimeUnit unit, long ownerId);
+
+    /**
+     * 异步解锁，锁已过期或不被该持有者持有时忽略
+     * @param ownerId 加锁时传入的持有者标识
+     */
+    CompletableFuture<Void> unlockAsync(String key, long ownerId);
+
+    /**
+     * 异步加锁后执行，action返回的结果完成后解锁，获取锁失败时返回的future以{@link io.github.dengchen2020.lock.exception.LockException}异常完成
+     */
+    <T> CompletableFuture<T> tryLockAsyncAndRun(String key, long waitTime, TimeUnit unit, Supplier<? extends CompletionStage<T>> action);
+
+    /**
+     * 生成异步锁的持有者标识，为负数，不会与线程id相同
+     */
+    static long newOwnerId() {
+        return ThreadLocalRandom.current().nextLong(Long.MIN_VALUE, 0);
+    }
+
     void tryLockAndRun(String key, Runnable runnable);
 
     void tryLockAndRun(String key, long waitTime, TimeUnit unit, Runnable runnable) throws InterruptedException;
@@ -24,4 +131,53 @@ public interface DLock {
 
     <T> T lockAndRun(String key, Callable<T> callable) throws Throwable;
 
+    /**
+     * 同时锁定多个key，key排序后依次加锁避免死锁，执行完成后一起释放
+     */
+    void lockAllAndRun(Collection<String> keys, Runnable runnable);
+
+    /**
+     * 同时锁定多个key，key排序后依次加锁避免死锁，执行完成后一起释放
+     */
+    <T> T lockAllAndRun(Collection<String> keys, Callable<T> callable) throws Throwable;
+
+    /**
+     * 尝试在等待时长内同时锁定多个key，任一key获取失败则全部释放并抛出异常
+     */
+    <T> T tryLockAllAndRun(Collection<String> keys, long waitTime, TimeUnit unit, Callable<T> callable) throws Throwable;
+
+    /**
+     * 加读锁后执行，多个读锁可同时持有，与写锁互斥
+     */
+    void readLockAndRun(String key, Runnable runnable);
+
+    /**
+     * 加读锁后执行，多个读锁可同时持有，与写锁互斥
+     */
+    <T> T readLockAndRun(String key, Callable<T> callable) throws Throwable;
+
+    /**
+     * 加写锁后执行，与读锁、写锁互斥
+     */
+    void writeLockAndRun(String key, Runnable runnable);
+
+    /**
+     * 加写锁后执行，与读锁、写锁互斥
+     */
+    <T> T writeLockAndRun(String key, Callable<T> callable) throws Throwable;
+
+    /**
+     * 在等待时长内获取信号量许可后执行，同一key在所有节点同时执行的数量不超过许可总数，获取失败抛出异常
+     * <p>许可的租约时长与{@code @DSemaphore}默认一致为60秒，执行时间可能更长时使用指定租约时长的重载</p>
+     * @param permits 许可总数，仅在信号量首次创建时生效
+     */
+    <T> T tryAcquireAndRun(String key, int permits, long waitTime, TimeUnit unit, Callable<T> callable) throws Throwable;
+
+    /**
+     * 在等待时长内获取信号量许可后执行，同一key在所有节点同时执行的数量不超过许可总数，获取失败抛出异常
+     * @param permits 许可总数，仅在信号量首次创建时生效
+     * @param leaseTime 许可的租约时长，到期后自动释放，-1表示不过期
+     */
+    <T> T tryAcquireAndRun(String key, int permits, long waitTime, long leaseTime, TimeUnit unit, Callable<T> callable) throws Throwable;
+
 }
@@ -0,0 +1,109 @@
+package io.github.dengchen2020.lock.api;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 本地key锁，作为分布式锁的第一阶段
+ * <p>同一节点内相同key的线程先在本地公平锁上排队，每个节点同一时间只有一个线程去竞争分布式锁，
+ * 竞争激烈时Redis操作数从"线程数"级别降为"节点数"级别，且本节点内按到达顺序获得锁</p>
+ * <p>每个key一个引用计数的本地锁，只有相同key的线程会在本地互斥，不同key之间不会相互阻塞；
+ * 持有和等待的线程都退出后移除该key的本地锁，占用的内存只与正在加锁的key数量有关</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class LocalKeyLock {
+
+    /**
+     * 引用计数为持有和等待该锁的次数（含重入），只在映射表的compute中修改
+     */
+    private static final class RefCountedLock extends ReentrantLock {
+
+        private int refs;
+
+        private RefCountedLock() {
+            super(true);
+        }
+
+    }
+
+    private final Map<String, RefCountedLock> locks = new ConcurrentHashMap<>();
+
+    private RefCountedLock retain(String key) {
+        return locks.compute(key, (_, lock) -> {
+            if (lock == null) lock = new RefCountedLock();
+            lock.refs++;
+            return lock;
+        });
+    }
+
+    private void release(String key) {
+        locks.computeIfPresent(key, (_, lock) -> --lock.refs <= 0 ? null : lock);
+    }
+
+    /**
+     * 阻塞获取key对应的本地锁
+     * @param key 锁key
+     */
+    public void lock(String key) {
+        RefCountedLock lock = retain(key);
+        boolean locked = false;
+        try {
+            lock.lock();
+            locked = true;
+        } finally {
+            if (!locked) release(key);
+        }
+    }
+
+    /**
+     * 尝试获取key对应的本地锁，不等待
+     * @param key 锁key
+     * @return true：获取成功
+     */
+    public boolean tryLock(String key) {
+        if (retain(key).tryLock()) return true;
+        release(key);
+        return false;
+    }
+
+    /**
+     * 尝试获取key对应的本地锁
+     * @param key 锁key
+     * @param timeout 等待时长
+     * @param unit 时间单位
+     * @return true：获取成功，false：超时
+     */
+    public boolean tryLock(String key, long timeout, TimeUnit unit) throws InterruptedException {
+        RefCountedLock lock = retain(key);
+        boolean locked = false;
+        try {
+            locked = lock.tryLock(timeout, unit);
+            return locked;
+        } finally {
+            if (!locked) release(key);
+        }
+    }
+
+    /**
+     * 释放key对应的本地锁，只能由加锁成功的线程调用
+     * @param key 锁key
+     * @throws IllegalMonitorStateException 当前线程未持有该锁
+     */
+    public void unlock(String key) {
+        RefCountedLock lock = locks.get(key);
+        if (lock == null || !lock.isHeldByCurrentThread()) throw new IllegalMonitorStateException("当前线程未持有本地锁：" + key);
+        lock.unlock();
+        release(key);
+    }
+
+    /**
+     * 正在持有或等待本地锁的key数量
+     */
+    public int size() {
+        return locks.size();
+    }
+}
@@ -0,0 +1,553 @@
+package io.github.dengchen2020.lock.api;
+
+import io.github.dengchen2020.lock.annotation.LockType;
+import io.github.dengchen2020.lock.metrics.LockMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 基于Lettuce（{@link StringRedisTemplate}）的轻量分布式锁实现，不依赖Redisson
+ * <p>加锁使用SET NX PX，解锁使用Lua脚本比较持有者后删除并发布释放消息，等待中的线程收到消息后立即重试，
+ * 未指定持有时长时由虚拟线程看门狗定时续期</p>
+ * <p>异步加锁在两次尝试之间不占用线程，由释放消息或锁的剩余过期时间到期触发下一次尝试</p>
+ * <p>同一key的等待者共用一个释放信号，信号按代次唤醒：每次收到释放消息时唤醒当前代次的所有等待者并开始新的代次，
+ * 等待者按引用计数登记，最后一个等待者退出时才移除信号</p>
+ * <p>支持互斥锁（可重入）、多key加锁和信号量，不支持读写锁</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class RedisLock extends AbstractDLock implements MessageListener, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisLock.class);
+
+    /**
+     * 锁和信号量释放时发布的频道，消息内容为被释放的Redis key
+     */
+    static final String RELEASE_CHANNEL = "dc:lock:release";
+
+    /**
+     * 未指定持有时长时的锁过期时间（毫秒），看门狗每1/3过期时间续期一次
+     */
+    private static final long WATCHDOG_TIMEOUT_MILLIS = 30_000L;
+
+    /**
+     * 返回0表示加锁成功，否则返回锁的剩余过期时间（毫秒）
+     */
+    private static final RedisScript<Long> lockScript = new DefaultRedisScript<>(
+            """
+                    if redis.call("SET", KEYS[1], ARGV[1], "NX", "PX", ARGV[2]) then
+                        return 0
+                    end
+                    local ttl = redis.call("PTTL", KEYS[1])
+                    if ttl <= 0 then
+                        return 1
+                    end
+                    return ttl
+                    """,
+            Long.class
+    );
+
+    private static final RedisScript<Long> unlockScript = new DefaultRedisScript<>(
+            """
+                    if redis.call("GET", KEYS[1]) == ARGV[1] then
+                        redis.call("DEL", KEYS[1])
+                        redis.call("PUBLISH", ARGV[2], KEYS[1])
+                        return 1
+                    end
+                    return 0
+                    """,
+            Long.class
+    );
+
+    private static final RedisScript<Long> renewScript = new DefaultRedisScript<>(
+            """
+                    if redis.call("GET", KEYS[1]) == ARGV[1] then
+                        return redis.call("PEXPIRE", KEYS[1], ARGV[2])
+                    end
+                    return 0
+                    """,
+            Long.class
+    );
+
+    /**
+     * 信号量：有序集合的成员为许可id，分数为租约到期时间，返回0表示获取成功，否则返回建议的等待时间（毫秒）
+     */
+    private static final RedisScript<Long> acquireScript = new DefaultRedisScript<>(
+            """
+                    local time = redis.call("TIME")
+                    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+                    redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", now)
+                    if redis.call("ZCARD", KEYS[1]) < tonumber(ARGV[1]) then
+                        local lease = tonumber(ARGV[3])
+                        if lease > 0 then
+                            redis.call("ZADD", KEYS[1], now + lease, ARGV[2])
+                        else
+                            redis.call("ZADD", KEYS[1], "+inf", ARGV[2])
+                        end
+                        return 0
+                    end
+                    local first = redis.call("ZRANGE", KEYS[1], 0, 0, "WITHSCORES")
+                    local wait = tonumber(first[2]) - now
+                    if wait ~= wait or wait > 1000 then
+                        return 1000
+                    end
+                    return math.max(wait, 1)
+                    """,
+            Long.class
+    );
+
+    private static final RedisScript<Long> releaseScript = new DefaultRedisScript<>(
+            """
+                    if redis.call("ZREM", KEYS[1], ARGV[1]) == 1 then
+                        redis.call("PUBLISH", ARGV[2], KEYS[1])
+                        return 1
+                    end
+                    return 0
+                    """,
+            Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+
+    private final AtomicLong permitSequence = new AtomicLong();
+
+    // 看门狗定时线程池，同时用于异步加锁的超时重试
+    private final ScheduledExecutorService watchdog;
+
+    // 执行异步加锁、解锁的虚拟线程
+    private final ExecutorService asyncExecutor;
+
+    // Redis key -> 本节点的持有者
+    private final Map<String, Holder> holders = new ConcurrentHashMap<>();
+
+    // Redis key -> 释放信号，有等待者时存在
+    private final Map<String, ReleaseSignal> releaseSignals = new ConcurrentHashMap<>();
+
+    public RedisLock(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer) {
+        this(redisTemplate, listenerContainer, null);
+    }
+
+    /**
+     * @param redisTemplate {@link StringRedisTemplate}
+     * @param listenerContainer 用于订阅释放消息的{@link RedisMessageListenerContainer}
+     * @param localLock 本地key锁，不为null时先获取本地锁再获取分布式锁
+     */
+    public RedisLock(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer, LocalKeyLock localLock) {
+        this(redisTemplate, listenerContainer, localLock, null);
+    }
+
+    /**
+     * @param redisTemplate {@link StringRedisTemplate}
+     * @param listenerContainer 用于订阅释放消息的{@link RedisMessageListenerContainer}
+     * @param localLock 本地key锁，不为null时先获取本地锁再获取分布式锁
+     * @param metrics 锁指标，为null时不统计
+     */
+    public RedisLock(StringRedisTemplate redisTemplate, RedisMessageListenerContainer listenerContainer, LocalKeyLock localLock, LockMetrics metrics) {
+        super(localLock, metrics);
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("redis-lock-watchdog").factory());
+        this.asyncExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redis-lock-async-", 0).factory());
+        listenerContainer.addMessageListener(this, ChannelTopic.of(RELEASE_CHANNEL));
+    }
+
+    private static void checkType(LockType type) {
+        if (type != LockType.exclusive) throw new UnsupportedOperationException("RedisLock不支持读写锁，请使用RedissonLock");
+    }
+
+    /**
+     * 只支持互斥锁
+     */
+    @Override
+    public boolean supports(LockType type) {
+        return type == LockType.exclusive;
+    }
+
+    /**
+     * 登记为key的等待者，与{@link #deregister(String)}成对调用
+     */
+    private ReleaseSignal register(String redisKey) {
+        return releaseSignals.compute(redisKey, (_, signal) -> {
+            if (signal == null) signal = new ReleaseSignal();
+            signal.waiters++;
+            return signal;
+        });
+    }
+
+    private void deregister(String redisKey) {
+        releaseSignals.computeIfPresent(redisKey, (_, signal) -> --signal.waiters <= 0 ? null : signal);
+    }
+
+    private String token() {
+        return nodeId + ":" + Thread.currentThread().threadId();
+    }
+
+    private String asyncToken(long ownerId) {
+        return nodeId + ":async:" + ownerId;
+    }
+
+    private long tryAcquireOnce(String redisKey, long leaseMillis) {
+        return tryAcquireOnce(redisKey, leaseMillis, token());
+    }
+
+    /**
+     * 尝试一次加锁，持有者相同时重入
+     * @param token 持有者标识，同步加锁为节点id+线程id，异步加锁为节点id+ownerId
+     * @return 0：加锁成功，大于0：锁的剩余过期时间（毫秒）
+     */
+    private long tryAcquireOnce(String redisKey, long leaseMillis, String token) {
+        Holder holder = holders.get(redisKey);
+        if (holder != null && holder.token.equals(token)) {
+            holder.count.incrementAndGet();
+            return 0;
+        }
+        Long ttl = redisTemplate.execute(lockScript, List.of(redisKey), token, String.valueOf(leaseMillis > 0 ? leaseMillis : WATCHDOG_TIMEOUT_MILLIS));
+        if (ttl == null || ttl != 0) return ttl == null ? 1 : ttl;
+        ScheduledFuture<?> renewal = null;
+        if (leaseMillis <= 0) {
+            long period = WATCHDOG_TIMEOUT_MILLIS / 3;
+            renewal = watchdog.scheduleAtFixedRate(() -> renew(redisKey, token), period, period, TimeUnit.MILLISECONDS);
+        }
+        holders.put(redisKey, new Holder(token, renewal));
+        return 0;
+    }
+
+    /**
+     * 释放持有者的锁，重入时只减少计数
+     */
+    private void unlockOnce(String redisKey, String token) {
+        Holder holder = holders.get(redisKey);
+        if (holder == null || !holder.token.equals(token)) return;
+        if (holder.count.decrementAndGet() > 0) return;
+        holders.remove(redisKey, holder);
+        if (holder.renewal != null) holder.renewal.cancel(false);
+        Long released = redisTemplate.execute(unlockScript, List.of(redisKey), holder.token, RELEASE_CHANNEL);
+        if (released != null && released == 0) leaseExpired(redisKey.substring(LOCK_GLOBAL_PREFIX.length()));
+    }
+
+    private void renew(String redisKey, String token) {
+        try {
+            Long renewed = redisTemplate.execute(renewScript, List.of(redisKey), token, String.valueOf(WATCHDOG_TIMEOUT_MILLIS));
+            if (renewed == null || renewed == 0) {
+                Holder holder = holders.get(redisKey);
+                if (holder != null && holder.token.equals(token) && holder.renewal != null) holder.renewal.cancel(false);
+                log.warn("分布式锁续期失败，锁已过期或被其他线程持有：{}", redisKey);
+            }
+        } catch (Exception e) {
+            log.warn("分布式锁续期异常，将在下次续期时重试：{}，异常信息：{}", redisKey, e.toString());
+        }
+    }
+
+    /**
+     * 等待释放信号，超时或收到信号后返回
+     */
+    private static void await(CompletableFuture<Void> generation, long timeoutMillis) throws InterruptedException {
+        try {
+            generation.get(Math.max(timeoutMillis, 1L), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException ignored) {
+        }
+    }
+
+    @Override
+    protected boolean doTryLock(String key, LockType type, long waitMillis, long leaseMillis) throws InterruptedException {
+        checkType(type);
+        String redisKey = LOCK_GLOBAL_PREFIX + key;
+        if (waitMillis <= 0) return tryAcquireOnce(redisKey, leaseMillis) == 0;
+        long deadline = System.currentTimeMillis() + waitMillis;
+        ReleaseSignal signal = register(redisKey);
+        try {
+            while (true) {
+                // 先取当前代次再尝试加锁，避免加锁失败后、等待前的释放消息被错过
+                var generation = signal.generation();
+                long ttl = tryAcquireOnce(redisKey, leaseMillis);
+                if (ttl == 0) return true;
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return false;
+                await(generation, Math.min(ttl, remaining));
+            }
+        } finally {
+            deregister(redisKey);
+        }
+    }
+
+    @Override
+    protected void doLock(String key, LockType type) {
+        checkType(type);
+        String redisKey = LOCK_GLOBAL_PREFIX + key;
+        ReleaseSignal signal = register(redisKey);
+        try {
+            while (true) {
+                var generation = signal.generation();
+                long ttl = tryAcquireOnce(redisKey, -1);
+                if (ttl == 0) return;
+                try {
+                    await(generation, ttl);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("等待分布式锁时线程被中断：" + redisKey, e);
+                }
+            }
+        } finally {
+            deregister(redisKey);
+        }
+    }
+
+    @Override
+    protected void doUnlock(String key, LockType type) {
+        checkType(type);
+        unlockOnce(LOCK_GLOBAL_PREFIX + key, token());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> tryLockAsync(String key, long waitTime, long leaseTime, TimeUnit unit, long ownerId) {
+        long deadline = System.currentTimeMillis() + (waitTime > 0 ? unit.toMillis(waitTime) : 0);
+        var acquisition = new AsyncAcquisition<>(LOCK_GLOBAL_PREFIX + key, leaseTime > 0 ? unit.toMillis(leaseTime) : -1, asyncToken(ownerId), deadline, true, false);
+        acquisition.start();
+        return acquisition.future;
+    }
+
+    @Override
+    public CompletableFuture<Void> lockAsync(String key, long leaseTime, TimeUnit unit, long ownerId) {
+        var acquisition = new AsyncAcquisition<Void>(LOCK_GLOBAL_PREFIX + key, leaseTime > 0 ? unit.toMillis(leaseTime) : -1, asyncToken(ownerId), Long.MAX_VALUE, null, null);
+        acquisition.start();
+        return acquisition.future;
+    }
+
+    @Override
+    public CompletableFuture<Void> unlockAsync(String key, long ownerId) {
+        return CompletableFuture.runAsync(() -> unlockOnce(LOCK_GLOBAL_PREFIX + key, asyncToken(ownerId)), asyncExecutor);
+    }
+
+    /**
+     * 一次异步加锁：失败时在释放信号或锁的剩余过期时间到期后再次尝试，两次尝试之间不占用线程
+     * <p>从开始到future完成期间登记为key的等待者；每个代次的释放信号只注册一次回调，释放信号与超时只触发一次重试</p>
+     */
+    private final class AsyncAcquisition<T> {
+        final String redisKey;
+        final long leaseMillis;
+        final String token;
+        final long deadline;
+        // 加锁成功、等待超时时future的完成值
+        final T acquired;
+        final T timeout;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        // 是否已安排下一次尝试
+        final AtomicBoolean retrying = new AtomicBoolean(true);
+        ReleaseSignal signal;
+        // 已注册回调的代次
+        volatile CompletableFuture<Void> subscribed;
+        volatile ScheduledFuture<?> timer;
+
+        AsyncAcquisition(String redisKey, long leaseMillis, String token, long deadline, T acquired, T timeout) {
+            this.redisKey = redisKey;
+            this.leaseMillis = leaseMillis;
+            this.token = token;
+            this.deadline = deadline;
+            this.acquired = acquired;
+            this.timeout = timeout;
+        }
+
+        void start() {
+            signal = register(redisKey);
+            // 无论以何种方式完成（含调用方取消）都退出等待
+            future.whenComplete((_, _) -> {
+                var current = timer;
+                if (current != null) current.cancel(false);
+                deregister(redisKey);
+            });
+            try {
+                asyncExecutor.execute(this::attempt);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        void attempt() {
+            if (future.isDone()) return;
+            var generation = signal.generation();
+            long ttl;
+            try {
+                ttl = tryAcquireOnce(redisKey, leaseMillis, token);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            if (ttl == 0) {
+                // 加锁期间future已被取消，归还刚获取的锁
+                if (!future.complete(acquired)) unlockOnce(redisKey, token);
+                return;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                future.complete(timeout);
+                return;
+            }
+            retrying.set(false);
+            try {
+                timer = watchdog.schedule(this::wake, Math.min(ttl, remaining), TimeUnit.MILLISECONDS);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+                return;
+            }
+            // 同一代次只注册一次回调，由超时触发的重试不会重复注册
+            if (subscribed != generation) {
+                subscribed = generation;
+                generation.thenRun(this::wake);
+            }
+        }
+
+        void wake() {
+            if (future.isDone() || !retrying.compareAndSet(false, true)) return;
+            var current = timer;
+            if (current != null) current.cancel(false);
+            try {
+                asyncExecutor.execute(this::attempt);
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * 按顺序依次加锁，共用等待时长，任一失败则释放已获取的锁
+     */
+    @Override
+    protected boolean doTryLockAll(List<String> sortedKeys, LockType type, long waitMillis, long leaseMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + Math.max(waitMillis, 0);
+        int acquired = 0;
+        boolean locked = false;
+        try {
+            for (String key : sortedKeys) {
+                long remaining = waitMillis > 0 ? Math.max(deadline - System.currentTimeMillis(), 0) : waitMillis;
+                if (!doTryLock(key, type, remaining, leaseMillis)) return false;
+                acquired++;
+            }
+            locked = true;
+            return true;
+        } finally {
+            if (!locked) {
+                for (int i = acquired - 1; i >= 0; i--) doUnlock(sortedKeys.get(i), type);
+            }
+        }
+    }
+
+    @Override
+    protected void doLockAll(List<String> sortedKeys, LockType type) {
+        int acquired = 0;
+        boolean locked = false;
+        try {
+            for (String key : sortedKeys) {
+                doLock(key, type);
+                acquired++;
+            }
+            locked = true;
+        } finally {
+            if (!locked) {
+                for (int i = acquired - 1; i >= 0; i--) doUnlock(sortedKeys.get(i), type);
+            }
+        }
+    }
+
+    /**
+     * 基于有序集合实现，许可总数以每次获取时传入的值为准
+     */
+    @Override
+    public String tryAcquire(String key, int permits, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        String redisKey = SEMAPHORE_GLOBAL_PREFIX + key;
+        String permitId = nodeId + ":" + permitSequence.incrementAndGet();
+        String lease = String.valueOf(leaseTime > 0 ? unit.toMillis(leaseTime) : -1);
+        if (waitTime <= 0) {
+            Long wait = redisTemplate.execute(acquireScript, List.of(redisKey), String.valueOf(permits), permitId, lease);
+            return wait != null && wait == 0 ? permitId : null;
+        }
+        long deadline = System.currentTimeMillis() + unit.toMillis(waitTime);
+        ReleaseSignal signal = register(redisKey);
+        try {
+            while (true) {
+                var generation = signal.generation();
+                Long wait = redisTemplate.execute(acquireScript, List.of(redisKey), String.valueOf(permits), permitId, lease);
+                if (wait != null && wait == 0) return permitId;
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) return null;
+                await(generation, Math.min(wait == null ? 1000 : wait, remaining));
+            }
+        } finally {
+            deregister(redisKey);
+        }
+    }
+
+    @Override
+    public void release(String key, String permitId) {
+        redisTemplate.execute(releaseScript, List.of(SEMAPHORE_GLOBAL_PREFIX + key), permitId, RELEASE_CHANNEL);
+    }
+
+    /**
+     * 收到释放消息，唤醒本节点等待该key的线程
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        var signal = releaseSignals.get(new String(message.getBody(), StandardCharsets.UTF_8));
+        if (signal != null) signal.fire();
+    }
+
+    @Override
+    public void close() {
+        listenerContainer.removeMessageListener(this);
+        watchdog.shutdown();
+        asyncExecutor.shutdown();
+    }
+
+    /**
+     * 同一key的释放信号
+     */
+    private static final class ReleaseSignal {
+        // 当前代次，收到释放消息时完成并替换为新的代次
+        private final AtomicReference<CompletableFuture<Void>> current = new AtomicReference<>(new CompletableFuture<>());
+        // 等待者数量，仅在releaseSignals的compute中修改
+        int waiters;
+
+        CompletableFuture<Void> generation() {
+            return current.get();
+        }
+
+        void fire() {
+            current.getAndSet(new CompletableFuture<>()).complete(null);
+        }
+    }
+
+    /**
+     * 本节点的锁持有者，异步锁的持有者可能在不同线程加锁、解锁，重入计数使用原子类
+     */
+    private static final class Holder {
+        final String token;
+        final ScheduledFuture<?> renewal;
+        final AtomicInteger count = new AtomicInteger(1);
+
+        Holder(String token, ScheduledFuture<?> renewal) {
+            this.token = token;
+            this.renewal = renewal;
+        }
+    }
+}
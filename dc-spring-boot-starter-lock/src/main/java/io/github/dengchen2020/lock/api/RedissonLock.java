@@ -1,10 +1,16 @@
 package io.github.dengchen2020.lock.api;
 
-import io.github.dengchen2020.lock.exception.LockException;
+import io.github.dengchen2020.lock.annotation.LockType;
+import io.github.dengchen2020.lock.metrics.LockMetrics;
 import org.redisson.api.RLock;
+import org.redisson.api.RPermitExpirableSemaphore;
 import org.redisson.api.RedissonClient;
 
-import java.util.concurrent.Callable;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -13,11 +19,32 @@ import java.util.concurrent.TimeUnit;
  * @author xiaochen
  * @since 2024/7/1
  */
-public class RedissonLock implements DLock {
+public class RedissonLock extends AbstractDLock {
 
     private final RedissonClient redissonClient;
 
+    // 已初始化许可数的信号量，避免每次获取许可都设置一次
+    private final Set<String> initializedSemaphores = ConcurrentHashMap.newKeySet();
+
     public RedissonLock(RedissonClient redissonClient) {
+        this(redissonClient, null);
+    }
+
+    /**
+     * @param redissonClient {@link RedissonClient}
+     * @param localLock 本地key锁，不为null时先获取本地锁再获取分布式锁
+     */
+    public RedissonLock(RedissonClient redissonClient, LocalKeyLock localLock) {
+        this(redissonClient, localLock, null);
+    }
+
+    /**
+     * @param redissonClient {@link RedissonClient}
+     * @param localLock 本地key锁，不为null时先获取本地锁再获取分布式锁
+     * @param metrics 锁指标，为null时不统计
+     */
+    public RedissonLock(RedissonClient redissonClient, LocalKeyLock localLock, LockMetrics metrics) {
+        super(localLock, metrics);
         this.redissonClient = redissonClient;
     }
 
@@ -31,115 +58,108 @@ public class RedissonLock implements DLock {
     }
 
     /**
-     * 解锁
-     * @param rLock {@link RLock}实例
+     * 获取指定类型的{@link RLock}实例，读写锁与互斥锁使用不同的前缀，相同key互不影响
+     * @param key 锁key
+     * @param type 锁类型
+     * @return {@link RLock}
      */
-    private void unlock(RLock rLock) {
-        if (rLock.isLocked() && rLock.isHeldByCurrentThread()) {
-            rLock.unlock();
-        }
+    private RLock getLock(String key, LockType type) {
+        return switch (type) {
+            case exclusive -> getLock(key);
+            case read -> redissonClient.getReadWriteLock(RW_LOCK_GLOBAL_PREFIX + key).readLock();
+            case write -> redissonClient.getReadWriteLock(RW_LOCK_GLOBAL_PREFIX + key).writeLock();
+        };
     }
 
-    protected LockException defaultException() {
-        throw new LockException("请求人数过多，请稍后再试");
+    private RLock[] getLocks(List<String> sortedKeys, LockType type) {
+        RLock[] rLocks = new RLock[sortedKeys.size()];
+        for (int i = 0; i < rLocks.length; i++) rLocks[i] = getLock(sortedKeys.get(i), type);
+        return rLocks;
     }
 
+
     @Override
-    public <T> T tryLockAndRun(String key, Callable<T> callable) throws Throwable {
-        RLock rLock = getLock(key);
-        try {
-            if (rLock.tryLock()) {
-                return callable.call();
-            } else {
-                throw defaultException();
-            }
-        } finally {
-            unlock(rLock);
-        }
+    protected boolean doTryLock(String key, LockType type, long waitMillis, long leaseMillis) throws InterruptedException {
+        return getLock(key, type).tryLock(waitMillis, leaseMillis, TimeUnit.MILLISECONDS);
     }
 
     @Override
-    public void tryLockAndRun(String key, Runnable runnable) {
-        RLock rLock = getLock(key);
-        try {
-            if (rLock.tryLock()) {
-                runnable.run();
-            } else {
-                throw defaultException();
-            }
-        } finally {
-            unlock(rLock);
-        }
+    protected void doLock(String key, LockType type) {
+        getLock(key, type).lock();
     }
 
-    public void tryLockAndRun(String key, Runnable runnable, Runnable failRunnable) {
-        RLock rLock = getLock(key);
-        try {
-            if (rLock.tryLock()) {
-                runnable.run();
-            } else {
-                if (failRunnable != null) failRunnable.run();
-            }
-        } finally {
-            unlock(rLock);
+    /**
+     * 锁已过期或不被当前线程持有时忽略，并记录为锁过期
+     */
+    @Override
+    protected void doUnlock(String key, LockType type) {
+        RLock rLock = getLock(key, type);
+        if (rLock.isLocked() && rLock.isHeldByCurrentThread()) {
+            rLock.unlock();
+        } else {
+            leaseExpired(key);
         }
     }
 
+    /**
+     * 通过{@link org.redisson.RedissonMultiLock}加锁
+     */
     @Override
-    public void tryLockAndRun(String key, long waitTime, TimeUnit unit, Runnable runnable) throws InterruptedException {
-        tryLockAndRun(key, waitTime, -1, unit, runnable);
+    protected boolean doTryLockAll(List<String> sortedKeys, LockType type, long waitMillis, long leaseMillis) throws InterruptedException {
+        return redissonClient.getMultiLock(getLocks(sortedKeys, type)).tryLock(waitMillis, leaseMillis, TimeUnit.MILLISECONDS);
     }
 
     @Override
-    public <T> T tryLockAndRun(String key, long waitTime, TimeUnit unit, Callable<T> callable) throws Throwable {
-        return tryLockAndRun(key, waitTime, -1, unit, callable);
-    }
-
-    public <T> T tryLockAndRun(String key, long waitTime, long leaseTime, TimeUnit unit, Callable<T> callable) throws Throwable {
-        RLock rLock = getLock(key);
-        try {
-            if (rLock.tryLock(waitTime, leaseTime, unit)) {
-                return callable.call();
-            } else {
-                throw defaultException();
-            }
-        } finally {
-            unlock(rLock);
-        }
+    protected void doLockAll(List<String> sortedKeys, LockType type) {
+        redissonClient.getMultiLock(getLocks(sortedKeys, type)).lock();
     }
 
-    public void tryLockAndRun(String key, long waitTime, long leaseTime, TimeUnit unit, Runnable runnable) throws InterruptedException {
-        RLock rLock = getLock(key);
-        try {
-            if (rLock.tryLock(waitTime, leaseTime, unit)) {
-                runnable.run();
-            } else {
-                throw defaultException();
-            }
-        } finally {
-            unlock(rLock);
-        }
+    /**
+     * 基于{@link RLock#tryLockAsync(long, long, TimeUnit, long)}，ownerId作为Redisson的线程id
+     */
+    @Override
+    public CompletableFuture<Boolean> tryLockAsync(String key, long waitTime, long leaseTime, TimeUnit unit, long ownerId) {
+        return getLock(key).tryLockAsync(Math.max(waitTime, 0), leaseTime > 0 ? leaseTime : -1, unit, ownerId).toCompletableFuture();
     }
 
     @Override
-    public void lockAndRun(String key, Runnable runnable) {
-        RLock rLock = getLock(key);
-        try {
-            rLock.lock();
-            runnable.run();
-        } finally {
-            unlock(rLock);
-        }
+    public CompletableFuture<Void> lockAsync(String key, long leaseTime, TimeUnit unit, long ownerId) {
+        return getLock(key).lockAsync(leaseTime > 0 ? leaseTime : -1, unit, ownerId).toCompletableFuture();
     }
 
     @Override
-    public <T> T lockAndRun(String key, Callable<T> callable) throws Throwable {
-        RLock rLock = getLock(key);
-        try {
-            rLock.lock();
-            return callable.call();
-        } finally {
-            unlock(rLock);
-        }
+    public CompletableFuture<Void> unlockAsync(String key, long ownerId) {
+        return getLock(key).unlockAsync(ownerId).toCompletableFuture().exceptionally(e -> {
+            // 锁已过期或不被该持有者持有时忽略，与同步解锁一致
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof IllegalMonitorStateException) return null;
+            throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+        });
+    }
+
+    /**
+     * 获取信号量，首次使用时设置许可数，已存在的信号量不会被修改
+     * @param key 信号量key（不含全局前缀）
+     * @param permits 许可数
+     * @return {@link RPermitExpirableSemaphore}
+     */
+    private RPermitExpirableSemaphore getSemaphore(String key, int permits) {
+        RPermitExpirableSemaphore semaphore = redissonClient.getPermitExpirableSemaphore(SEMAPHORE_GLOBAL_PREFIX + key);
+        if (initializedSemaphores.add(key + ":" + permits)) semaphore.trySetPermits(permits);
+        return semaphore;
     }
+
+    /**
+     * 基于{@link RPermitExpirableSemaphore}，许可总数仅在信号量首次创建时生效
+     */
+    @Override
+    public String tryAcquire(String key, int permits, long waitTime, long leaseTime, TimeUnit unit) throws InterruptedException {
+        return getSemaphore(key, permits).tryAcquire(Math.max(waitTime, 0), leaseTime, unit);
+    }
+
+    @Override
+    public void release(String key, String permitId) {
+        redissonClient.getPermitExpirableSemaphore(SEMAPHORE_GLOBAL_PREFIX + key).tryRelease(permitId);
+    }
+
 }
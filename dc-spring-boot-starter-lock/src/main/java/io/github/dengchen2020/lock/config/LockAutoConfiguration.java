@@ -1,71 +1,151 @@
 package io.github.dengchen2020.lock.config;
 
+import io.github.dengchen2020.core.redis.RedisDependencyAutoConfiguration;
 import io.github.dengchen2020.lock.LockAop;
+import io.github.dengchen2020.lock.api.LocalKeyLock;
+import io.github.dengchen2020.lock.api.RedisLock;
 import io.github.dengchen2020.lock.api.RedissonLock;
+import io.github.dengchen2020.lock.metrics.LockMetrics;
+import io.github.dengchen2020.lock.metrics.MicrometerLockMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
 import org.redisson.config.SingleServerConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.aot.AbstractAotProcessor;
 import org.springframework.core.env.Environment;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
 import java.util.concurrent.Executors;
 
 /**
  * 锁自动配置
+ * <p>默认使用Redisson实现，配置dc.lock.provider=redis或项目中排除了Redisson时使用基于Lettuce的轻量实现{@link RedisLock}</p>
  * @author xiaochen
  * @since 2024/7/1
  */
-@ConditionalOnClass(RedissonClient.class)
+@AutoConfigureAfter(value = RedisDependencyAutoConfiguration.class, name = "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration")
 @Configuration(proxyBeanMethods = false)
 public final class LockAutoConfiguration {
 
-    @ConditionalOnMissingBean
-    @Bean(destroyMethod = "shutdown")
-    RedissonClient redissonClient(Environment environment) {
-        Config config = new Config();
-        // redisson4.3.1特别说明不建议使用虚拟线程，原因在于NettyEventLoop不支持使用虚拟线程
-        if (environment.getProperty("dc.lock.redisson.netty.use-virtual-thread", boolean.class, false)) config.setNettyExecutor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redisson-netty-", 0).factory()));
-        config.setExecutor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redisson-", 0).factory()));
-        config.setUseScriptCache(true);
-        SingleServerConfig singleServerConfig = config.useSingleServer();
-        singleServerConfig.setConnectionMinimumIdleSize(1);
-        String host = environment.getProperty("dc.lock.redisson.redis.host", environment.getProperty("spring.data.redis.host","127.0.0.1"));
-        int port = environment.getProperty("dc.lock.redisson.redis.port", int.class, environment.getProperty("spring.data.redis.port", int.class, 6379));
-        int database = environment.getProperty("dc.lock.redisson.redis.database", int.class, environment.getProperty("spring.data.redis.database", int.class, 0));
-        config.setTcpKeepAlive(true);
-        singleServerConfig.setAddress("redis://" + host + ":" + port).setDatabase(database);
-        String password = environment.getProperty("dc.lock.redisson.redis.password");
-        if (password == null) password = environment.getProperty("spring.data.redis.password");
-        if (password != null) config.setPassword(password);
-        String username = environment.getProperty("dc.lock.redisson.redis.username");
-        if (username == null) username = environment.getProperty("spring.data.redis.username");
-        if (username != null) config.setUsername(username);
-        String applicationName = environment.getProperty("spring.application.name","spring");
-        singleServerConfig.setClientName(applicationName + "-redisson-lock");
-        if (environment.getProperty("dc.lock.redisson.redis.lazy-initialization", boolean.class, true)) {
-            config.setLazyInitialization(true);
-        }else {
-            // 在spring-aot处理器执行阶段不连接redis，避免使用其他环境的redis配置连不上而报错（编译环境与运行环境不一定相同，redis可能是内网的）
-            if (Boolean.parseBoolean(System.getProperty(AbstractAotProcessor.AOT_PROCESSING))) {
+    private static LocalKeyLock localKeyLock(Environment environment) {
+        if (!environment.getProperty("dc.lock.local.enabled", boolean.class, false)) return null;
+        return new LocalKeyLock();
+    }
+
+    /**
+     * 引入Micrometer且存在{@link MeterRegistry}时按锁名称统计等待时长、持有时长、失败次数和锁过期次数
+     */
+    @ConditionalOnClass(MeterRegistry.class)
+    @ConditionalOnProperty(name = "dc.lock.metrics.enabled", havingValue = "true", matchIfMissing = true)
+    @Configuration(proxyBeanMethods = false)
+    static final class LockMetricsConfiguration {
+
+        @ConditionalOnMissingBean
+        @ConditionalOnBean(MeterRegistry.class)
+        @Bean
+        LockMetrics lockMetrics(MeterRegistry meterRegistry) {
+            return new MicrometerLockMetrics(meterRegistry);
+        }
+
+    }
+
+    @ConditionalOnClass(RedissonClient.class)
+    @ConditionalOnProperty(name = "dc.lock.provider", havingValue = "redisson", matchIfMissing = true)
+    @Configuration(proxyBeanMethods = false)
+    static final class RedissonLockConfiguration {
+
+        @ConditionalOnMissingBean
+        @Bean(destroyMethod = "shutdown")
+        RedissonClient redissonClient(Environment environment) {
+            Config config = new Config();
+            // redisson4.3.1特别说明不建议使用虚拟线程，原因在于NettyEventLoop不支持使用虚拟线程
+            if (environment.getProperty("dc.lock.redisson.netty.use-virtual-thread", boolean.class, false)) config.setNettyExecutor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redisson-netty-", 0).factory()));
+            config.setExecutor(Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redisson-", 0).factory()));
+            config.setUseScriptCache(true);
+            SingleServerConfig singleServerConfig = config.useSingleServer();
+            singleServerConfig.setConnectionMinimumIdleSize(1);
+            String host = environment.getProperty("dc.lock.redisson.redis.host", environment.getProperty("spring.data.redis.host","127.0.0.1"));
+            int port = environment.getProperty("dc.lock.redisson.redis.port", int.class, environment.getProperty("spring.data.redis.port", int.class, 6379));
+            int database = environment.getProperty("dc.lock.redisson.redis.database", int.class, environment.getProperty("spring.data.redis.database", int.class, 0));
+            config.setTcpKeepAlive(true);
+            singleServerConfig.setAddress("redis://" + host + ":" + port).setDatabase(database);
+            String password = environment.getProperty("dc.lock.redisson.redis.password");
+            if (password == null) password = environment.getProperty("spring.data.redis.password");
+            if (password != null) config.setPassword(password);
+            String username = environment.getProperty("dc.lock.redisson.redis.username");
+            if (username == null) username = environment.getProperty("spring.data.redis.username");
+            if (username != null) config.setUsername(username);
+            String applicationName = environment.getProperty("spring.application.name","spring");
+            singleServerConfig.setClientName(applicationName + "-redisson-lock");
+            if (environment.getProperty("dc.lock.redisson.redis.lazy-initialization", boolean.class, true)) {
                 config.setLazyInitialization(true);
+            }else {
+                // 在spring-aot处理器执行阶段不连接redis，避免使用其他环境的redis配置连不上而报错（编译环境与运行环境不一定相同，redis可能是内网的）
+                if (Boolean.parseBoolean(System.getProperty(AbstractAotProcessor.AOT_PROCESSING))) {
+                    config.setLazyInitialization(true);
+                }
             }
+            return Redisson.create(config);
+        }
+
+        @Bean
+        RedissonLock redissonLock(RedissonClient redissonClient, Environment environment, ObjectProvider<LockMetrics> lockMetrics) {
+            return new RedissonLock(redissonClient, localKeyLock(environment), lockMetrics.getIfAvailable());
+        }
+
+        @Bean
+        LockAop lockAop(RedissonLock redissonLock) {
+            return new LockAop(redissonLock);
         }
-        return Redisson.create(config);
+
     }
 
-    @Bean
-    RedissonLock redissonLock(RedissonClient redissonClient) {
-        return new RedissonLock(redissonClient);
+    @Conditional(RedisLockCondition.class)
+    @ConditionalOnClass(StringRedisTemplate.class)
+    @ConditionalOnBean({StringRedisTemplate.class, RedisMessageListenerContainer.class})
+    @Configuration(proxyBeanMethods = false)
+    static final class RedisLockConfiguration {
+
+        @Bean(destroyMethod = "close")
+        RedisLock redisLock(StringRedisTemplate redisTemplate, RedisMessageListenerContainer redisMessageListenerContainer, Environment environment, ObjectProvider<LockMetrics> lockMetrics) {
+            return new RedisLock(redisTemplate, redisMessageListenerContainer, localKeyLock(environment), lockMetrics.getIfAvailable());
+        }
+
+        @Bean
+        LockAop lockAop(RedisLock redisLock) {
+            return new LockAop(redisLock);
+        }
+
     }
 
-    @Bean
-    LockAop lockAop(RedissonClient redissonClient) {
-        return new LockAop(redissonClient);
+    /**
+     * 配置dc.lock.provider=redis或项目中没有Redisson时使用{@link RedisLock}
+     */
+    static final class RedisLockCondition extends AnyNestedCondition {
+
+        RedisLockCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(name = "dc.lock.provider", havingValue = "redis")
+        static final class ProviderRedis {}
+
+        @ConditionalOnMissingClass("org.redisson.api.RedissonClient")
+        static final class RedissonMissing {}
+
     }
 
 }
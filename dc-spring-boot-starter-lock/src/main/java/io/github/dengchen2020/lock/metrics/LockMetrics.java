@@ -0,0 +1,76 @@
+package io.github.dengchen2020.lock.metrics;
+
+/**
+ * 分布式锁指标记录，按锁名称（而非完整key）统计，避免指标基数随业务id膨胀
+ * <p>锁名称取key中第一个冒号之前的部分，{@code @Lock}的key为"name:表达式结果"，即注解的name；
+ * 没有冒号的key统一为{@link #DEFAULT_NAME}，多key加锁统一为{@link #MULTI_NAME}，避免任意key各自成为一个指标</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public interface LockMetrics {
+
+    /**
+     * 等待超时未获取到锁
+     */
+    String TIMEOUT = "timeout";
+
+    /**
+     * 不等待，锁被占用时直接失败
+     */
+    String REJECTED = "rejected";
+
+    /**
+     * 加锁时发生异常（如Redis超时、连接断开）
+     */
+    String ERROR = "error";
+
+    /**
+     * 没有名称（不含冒号）的锁key的锁名称
+     */
+    String DEFAULT_NAME = "default";
+
+    /**
+     * 多key加锁的锁名称
+     */
+    String MULTI_NAME = "multi";
+
+    /**
+     * 获取锁成功
+     * @param name 锁名称
+     * @param waitNanos 等待时长（纳秒），包含本地key锁的等待时间
+     */
+    void acquired(String name, long waitNanos);
+
+    /**
+     * 获取锁失败
+     * @param name 锁名称
+     * @param waitNanos 等待时长（纳秒）
+     * @param reason 失败原因：{@link #TIMEOUT}、{@link #REJECTED}、{@link #ERROR}
+     */
+    void failed(String name, long waitNanos, String reason);
+
+    /**
+     * 释放锁
+     * @param name 锁名称
+     * @param holdNanos 持有时长（纳秒）
+     */
+    void released(String name, long holdNanos);
+
+    /**
+     * 解锁时发现锁已不被当前持有者持有，说明锁在业务执行完成前已过期，期间互斥可能已失效
+     * @param name 锁名称
+     */
+    void leaseExpired(String name);
+
+    /**
+     * 从锁key中取锁名称
+     * @param key 锁key（不含全局前缀）
+     * @return 第一个冒号之前的部分，没有冒号时为{@link #DEFAULT_NAME}
+     */
+    static String nameOf(String key) {
+        int index = key.indexOf(':');
+        return index > 0 ? key.substring(0, index) : DEFAULT_NAME;
+    }
+
+}
@@ -1,18 +1,32 @@
 package io.github.dengchen2020.ratelimiter;
 
 import io.github.dengchen2020.core.interceptor.BaseHandlerMethodInterceptor;
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadata;
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.core.security.principal.AnonymousAuthentication;
+import io.github.dengchen2020.core.security.principal.TenantInfo;
 import io.github.dengchen2020.core.utils.RequestUtils;
+import io.github.dengchen2020.core.utils.hash.MurmurHash3;
+import io.github.dengchen2020.ratelimiter.annotation.AdaptiveConcurrencyLimit;
+import io.github.dengchen2020.ratelimiter.annotation.Bulkhead;
 import io.github.dengchen2020.ratelimiter.annotation.RateLimit;
 import io.github.dengchen2020.ratelimiter.annotation.RateLimitStrategy;
+import io.github.dengchen2020.ratelimiter.exception.ConcurrencyLimitException;
 import io.github.dengchen2020.ratelimiter.exception.RateLimitException;
+import io.github.dengchen2020.ratelimiter.local.AdaptiveConcurrencyLimiter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.util.StringUtils;
 import org.springframework.web.method.HandlerMethod;
 
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
+import java.time.Duration;
+import java.util.HexFormat;
 
 /**
  * 限流拦截器
@@ -23,14 +37,29 @@ import java.security.Principal;
 @NullMarked
 public abstract class AbstractRateLimiterInterceptor extends BaseHandlerMethodInterceptor {
 
+    private static final String CONCURRENCY_PERMIT_ATTRIBUTE = AbstractRateLimiterInterceptor.class.getName() + ".CONCURRENCY_PERMIT";
+
+    private static final String BULKHEAD_PERMIT_ATTRIBUTE = AbstractRateLimiterInterceptor.class.getName() + ".BULKHEAD_PERMIT";
+
     private final String errorMsg;
 
     public AbstractRateLimiterInterceptor(String errorMsg) {
         this.errorMsg = errorMsg;
     }
 
+    /**
+     * @param handlerMethodMetadataRegistry 与其他拦截器共享的注解元数据注册表
+     */
+    public AbstractRateLimiterInterceptor(String errorMsg, HandlerMethodMetadataRegistry handlerMethodMetadataRegistry) {
+        super(handlerMethodMetadataRegistry);
+        this.errorMsg = errorMsg;
+    }
+
     protected String getLimitKey(HttpServletRequest request, RateLimit rateLimit, String methodName) {
-        RateLimitStrategy strategy = rateLimit.strategy();
+        return getLimitKey(request, rateLimit.strategy(), methodName);
+    }
+
+    protected String getLimitKey(HttpServletRequest request, RateLimitStrategy strategy, String methodName) {
         String limitKey;
         switch (strategy) {
             case userAndUri -> {
@@ -52,6 +81,16 @@ public abstract class AbstractRateLimiterInterceptor extends BaseHandlerMethodIn
                 }
             }
             case uri -> limitKey = methodName;
+            case tenant -> {
+                Principal principal = request.getUserPrincipal();
+                if (principal instanceof TenantInfo tenantInfo && tenantInfo.tenantId() != null) {
+                    limitKey = "tenant:" + tenantInfo.tenantId();
+                } else if (principal == null || principal instanceof AnonymousAuthentication) {
+                    limitKey = RequestUtils.getRemoteAddr(request);
+                } else {
+                    limitKey = principal.getName();
+                }
+            }
             case null, default -> limitKey = RequestUtils.getRemoteAddr(request) + ":" + methodName;
         }
         return limitKey;
@@ -59,15 +98,182 @@ public abstract class AbstractRateLimiterInterceptor extends BaseHandlerMethodIn
 
     protected abstract boolean limit(RateLimit rateLimit, String limitKey);
 
+    /**
+     * 尝试获取请求许可，默认基于{@link #limit(RateLimit, String)}，被限流时以整个时间窗口作为等待时间
+     * @return 0：允许请求，大于0：被限流，值为距离下次允许请求需等待的毫秒数
+     */
+    protected long tryAcquire(RateLimit rateLimit, String limitKey) {
+        return limit(rateLimit, limitKey) ? Math.max(rateLimit.timeUnit().toMillis(rateLimit.time()), 1L) : 0;
+    }
+
+    /**
+     * 撤销一次已获取的请求许可，用于多维度限流中后续维度被限流时归还前面维度已消耗的次数，默认不支持撤销
+     */
+    protected void rollback(RateLimit rateLimit, String limitKey) {}
+
+    /**
+     * 多维度限流，所有维度都允许时才计数，任一维度被限流则都不计数
+     * <p>默认依次获取，被限流时通过{@link #rollback(RateLimit, String)}归还已获取的许可，子类可覆盖为一次原子判断</p>
+     * @param rateLimits 限流注解
+     * @param limitKeys 与限流注解一一对应的限流标识
+     * @return 限流结果，被限流时包含拒绝请求的维度下标
+     */
+    protected MultiRateLimitResult tryAcquireAll(RateLimit[] rateLimits, String[] limitKeys) {
+        for (int i = 0; i < rateLimits.length; i++) {
+            long retryAfterMillis = tryAcquire(rateLimits[i], limitKeys[i]);
+            if (retryAfterMillis > 0) {
+                for (int j = 0; j < i; j++) rollback(rateLimits[j], limitKeys[j]);
+                return new MultiRateLimitResult(retryAfterMillis, i);
+            }
+        }
+        return MultiRateLimitResult.ALLOWED;
+    }
+
+    /**
+     * 尝试占用舱壁名额
+     * @param bulkhead 舱壁注解
+     * @param key 舱壁标识，由方法标识与限制标识组成
+     * @return 名额，为null表示已满且排队已满或等待超时
+     */
+    protected abstract @Nullable BulkheadPermit tryAcquireBulkhead(Bulkhead bulkhead, String key);
+
+    /**
+     * 所有限流标识共用的前缀，默认为空
+     * <p>Redis集群模式下多维度限流的Key需位于同一slot，子类可返回固定的hash tag（如{@code "{dc:ratelimit}:"}），
+     * 单维度与多维度使用相同的前缀，同一维度的计数不会因为接口上声明的维度数量不同而不同</p>
+     */
+    protected String keyPrefix() {
+        return "";
+    }
+
+    /**
+     * 获取控制器方法的限流元数据，首次获取时解析并缓存在{@link HandlerMethodMetadata}中
+     * @param handlerMethod 控制器方法
+     * @return 限流元数据，未配置限流时{@link RateLimitMetadata#rateLimits()}为空，{@link RateLimitMetadata#bulkhead()}、{@link RateLimitMetadata#concurrencyLimiter()}为null
+     */
+    protected RateLimitMetadata getMetadata(HandlerMethod handlerMethod) {
+        RateLimitMetadata metadata = handlerMethodMetadata(handlerMethod).computeIfAbsent(this, this::resolveMetadata);
+        return metadata == null ? RateLimitMetadata.NONE : metadata;
+    }
+
+    private RateLimitMetadata resolveMetadata(HandlerMethodMetadata handlerMethodMetadata) {
+        RateLimit[] rateLimits = handlerMethodMetadata.getAnnotationsByType(RateLimit.class);
+        AdaptiveConcurrencyLimit concurrencyLimit = handlerMethodMetadata.getAnnotation(AdaptiveConcurrencyLimit.class);
+        Bulkhead bulkhead = handlerMethodMetadata.getAnnotation(Bulkhead.class);
+        if (rateLimits.length == 0 && concurrencyLimit == null && bulkhead == null) return RateLimitMetadata.NONE;
+        // 方法标识取完整签名的hash，固定16位十六进制（保留前导0），避免每次请求拼接handlerMethod.toString()
+        long hash = MurmurHash3.hash128(handlerMethodMetadata.getHandlerMethod().toString().getBytes(StandardCharsets.UTF_8), 0)[0];
+        AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+        String concurrencyErrorMsg = errorMsg;
+        if (concurrencyLimit != null) {
+            // 每个控制器方法独立的并发上限
+            concurrencyLimiter = new AdaptiveConcurrencyLimiter(concurrencyLimit.algorithm(), concurrencyLimit.initialLimit(),
+                    concurrencyLimit.minLimit(), concurrencyLimit.maxLimit(), Duration.ofMillis(concurrencyLimit.latencyThreshold()));
+            if (StringUtils.hasText(concurrencyLimit.errorMsg())) concurrencyErrorMsg = concurrencyLimit.errorMsg();
+        }
+        String bulkheadErrorMsg = bulkhead != null && StringUtils.hasText(bulkhead.errorMsg()) ? bulkhead.errorMsg() : errorMsg;
+        String methodId = HexFormat.of().toHexDigits(hash);
+        var strategies = new RateLimitStrategy[rateLimits.length];
+        var keySuffixes = new String[rateLimits.length];
+        String rateLimitErrorMsg = null;
+        for (int i = 0; i < rateLimits.length; i++) {
+            var rateLimit = rateLimits[i];
+            strategies[i] = rateLimit.strategy();
+            // 多个维度的限流标识可能相同（如同一接口既限制每秒又限制每分钟），以时间窗口区分；单维度也带上，
+            // 同一限流标识与时间窗口在只声明一个维度和声明多个维度的接口之间共用同一个计数
+            keySuffixes[i] = ":" + rateLimit.timeUnit().toMillis(rateLimit.time());
+            if (rateLimitErrorMsg == null && StringUtils.hasText(rateLimit.errorMsg())) rateLimitErrorMsg = rateLimit.errorMsg();
+        }
+        // 限流标识的作用范围只由限流策略决定（ip、user、tenant跨接口共享，uri、ipAndUri、userAndUri按接口），与声明的维度数量无关
+        return new RateLimitMetadata(rateLimits, strategies, keyPrefix(), keySuffixes, methodId,
+                rateLimitErrorMsg != null ? rateLimitErrorMsg : errorMsg, bulkhead, bulkheadErrorMsg, concurrencyLimiter, concurrencyErrorMsg);
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod) {
-        RateLimit rateLimit = handlerMethod.getMethod().getAnnotation(RateLimit.class);
-        if (rateLimit == null) rateLimit = handlerMethod.getBeanType().getAnnotation(RateLimit.class);
-        if (rateLimit == null) return true;
-        String limitKey = getLimitKey(request, rateLimit, handlerMethod.toString());
-        if (limit(rateLimit, limitKey)) throw new RateLimitException(StringUtils.hasText(rateLimit.errorMsg()) ? rateLimit.errorMsg() : errorMsg, rateLimit.timeUnit());
+        var metadata = getMetadata(handlerMethod);
+        var rateLimits = metadata.rateLimits();
+        if (rateLimits.length > 0) {
+            long retryAfterMillis;
+            RateLimit rejected = rateLimits[0];
+            if (rateLimits.length == 1) {
+                retryAfterMillis = tryAcquire(rejected, metadata.keyPrefix() + getLimitKey(request, metadata.strategies()[0], metadata.methodId()) + metadata.keySuffixes()[0]);
+            } else {
+                var limitKeys = new String[rateLimits.length];
+                for (int i = 0; i < rateLimits.length; i++) {
+                    limitKeys[i] = metadata.keyPrefix() + getLimitKey(request, metadata.strategies()[i], metadata.methodId()) + metadata.keySuffixes()[i];
+                }
+                var result = tryAcquireAll(rateLimits, limitKeys);
+                retryAfterMillis = result.retryAfterMillis();
+                if (result.rejectedIndex() >= 0) rejected = rateLimits[result.rejectedIndex()];
+            }
+            if (retryAfterMillis > 0) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(Math.ceilDiv(retryAfterMillis, 1000L)));
+                String msg = StringUtils.hasText(rejected.errorMsg()) ? rejected.errorMsg() : metadata.errorMsg();
+                throw new RateLimitException(msg, rejected.timeUnit(), retryAfterMillis);
+            }
+        }
+        BulkheadPermit bulkheadPermit = null;
+        var bulkhead = metadata.bulkhead();
+        if (bulkhead != null) {
+            // 每个接口独立的舱壁，同一标识在不同接口的最大同时执行数可以不同
+            bulkheadPermit = tryAcquireBulkhead(bulkhead, metadata.methodId() + ":" + getLimitKey(request, bulkhead.strategy(), metadata.methodId()));
+            if (bulkheadPermit == null) {
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                throw new ConcurrencyLimitException(metadata.bulkheadErrorMsg());
+            }
+            request.setAttribute(BULKHEAD_PERMIT_ATTRIBUTE, bulkheadPermit);
+        }
+        var concurrencyLimiter = metadata.concurrencyLimiter();
+        if (concurrencyLimiter != null) {
+            if (!concurrencyLimiter.tryAcquire()) {
+                // 抛出异常时不会执行本拦截器的afterCompletion，需在此释放舱壁名额
+                if (bulkheadPermit != null) {
+                    request.removeAttribute(BULKHEAD_PERMIT_ATTRIBUTE);
+                    bulkheadPermit.release();
+                }
+                response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+                throw new ConcurrencyLimitException(metadata.concurrencyErrorMsg());
+            }
+            request.setAttribute(CONCURRENCY_PERMIT_ATTRIBUTE, new ConcurrencyPermit(concurrencyLimiter, System.nanoTime()));
+        }
         return true;
     }
+
+    /**
+     * 释放舱壁名额和并发名额并记录请求耗时，异步请求在异步处理完成后才会执行到这里
+     */
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, @Nullable Exception ex) {
+        if (request.getAttribute(BULKHEAD_PERMIT_ATTRIBUTE) instanceof BulkheadPermit bulkheadPermit) {
+            request.removeAttribute(BULKHEAD_PERMIT_ATTRIBUTE);
+            bulkheadPermit.release();
+        }
+        if (!(request.getAttribute(CONCURRENCY_PERMIT_ATTRIBUTE) instanceof ConcurrencyPermit permit)) return;
+        request.removeAttribute(CONCURRENCY_PERMIT_ATTRIBUTE);
+        permit.limiter().release(System.nanoTime() - permit.startNanos(), ex != null || response.getStatus() >= 500);
+    }
+
+    private record ConcurrencyPermit(AdaptiveConcurrencyLimiter limiter, long startNanos) {}
+
+    /**
+     * 控制器方法的限流元数据
+     *
+     * @param rateLimits 生效的限流注解，方法级别优先，为空表示未配置限流
+     * @param strategies 与限流注解一一对应的限流策略
+     * @param keyPrefix 限流标识前缀，见{@link #keyPrefix()}
+     * @param keySuffixes 与限流注解一一对应的限流标识后缀
+     * @param methodId 方法标识，固定长度
+     * @param errorMsg 异常提示
+     * @param bulkhead 舱壁注解，为null表示未配置
+     * @param bulkheadErrorMsg 舱壁已满时的异常提示
+     * @param concurrencyLimiter 自适应并发限制，为null表示未配置
+     * @param concurrencyErrorMsg 超出并发限制时的异常提示
+     */
+    protected record RateLimitMetadata(RateLimit[] rateLimits, RateLimitStrategy[] strategies, String keyPrefix, String[] keySuffixes, String methodId, String errorMsg,
+                                       @Nullable Bulkhead bulkhead, String bulkheadErrorMsg, @Nullable AdaptiveConcurrencyLimiter concurrencyLimiter, String concurrencyErrorMsg) {
+        static final RateLimitMetadata NONE = new RateLimitMetadata(new RateLimit[0], new RateLimitStrategy[0], "", new String[0], "", "", null, "", null, "");
+    }
 }
 
 
@@ -0,0 +1,17 @@
+package io.github.dengchen2020.ratelimiter;
+
+/**
+ * 舱壁名额，请求结束时必须调用{@link #release()}
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@FunctionalInterface
+public interface BulkheadPermit {
+
+    /**
+     * 释放名额，只应调用一次
+     */
+    void release();
+
+}
@@ -0,0 +1,22 @@
+package io.github.dengchen2020.ratelimiter;
+
+/**
+ * 多维度限流结果
+ *
+ * @param retryAfterMillis 0：允许请求，大于0：被限流，值为距离所有维度都允许请求需等待的毫秒数
+ * @param rejectedIndex 需等待最久的被限流维度的下标，允许请求时为-1
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public record MultiRateLimitResult(long retryAfterMillis, int rejectedIndex) {
+
+    public static final MultiRateLimitResult ALLOWED = new MultiRateLimitResult(0, -1);
+
+    /**
+     * 是否允许请求
+     */
+    public boolean allowed() {
+        return retryAfterMillis <= 0;
+    }
+
+}
@@ -0,0 +1,47 @@
+package io.github.dengchen2020.ratelimiter.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 自适应并发限制注解，根据接口延迟自动调整单机允许同时处理的请求数，超出时快速失败（http503）
+ * <p>与{@link RateLimit}可同时使用，先判断{@link RateLimit}</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface AdaptiveConcurrencyLimit {
+
+    /**
+     * 调整算法
+     */
+    ConcurrencyLimitAlgorithm algorithm() default ConcurrencyLimitAlgorithm.gradient;
+
+    /**
+     * 初始并发上限
+     */
+    int initialLimit() default 20;
+
+    /**
+     * 最小并发上限
+     */
+    int minLimit() default 1;
+
+    /**
+     * 最大并发上限
+     */
+    int maxLimit() default 1000;
+
+    /**
+     * 延迟阈值（毫秒），仅{@link ConcurrencyLimitAlgorithm#aimd}有效，超过该值视为过载
+     */
+    long latencyThreshold() default 1000;
+
+    /**
+     * 异常提示
+     */
+    String errorMsg() default "";
+
+}
@@ -0,0 +1,48 @@
+package io.github.dengchen2020.ratelimiter.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 舱壁注解，限制同一标识（如租户）同时执行的请求数，避免个别租户的慢请求占满数据库连接池等共享资源
+ * <p>限制标识的解析方式与{@link RateLimit}一致，每个接口的舱壁相互独立，超出并排队超时时快速失败（http503）</p>
+ * <p>与{@link RateLimit}、{@link AdaptiveConcurrencyLimit}可同时使用，判断顺序为{@link RateLimit}、{@link Bulkhead}、{@link AdaptiveConcurrencyLimit}</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Bulkhead {
+
+    /**
+     * 同一标识最大同时执行数
+     */
+    int value() default 10;
+
+    /**
+     * 限制标识的解析策略
+     */
+    RateLimitStrategy strategy() default RateLimitStrategy.tenant;
+
+    /**
+     * 同一标识最大排队数，0表示不排队，Redis模式下为单个节点的排队数，且需要{@code RedisMessageListenerContainer}接收名额释放通知
+     */
+    int maxWaiting() default 0;
+
+    /**
+     * 排队等待时长（毫秒），maxWaiting大于0时有效
+     */
+    long waitTime() default 0;
+
+    /**
+     * 名额租约时长（毫秒），仅Redis模式有效，持有期间每1/3租约自动续期，节点宕机未释放的名额在租约到期后自动释放
+     */
+    long leaseTime() default 60_000;
+
+    /**
+     * 异常提示
+     */
+    String errorMsg() default "";
+
+}
@@ -0,0 +1,17 @@
+package io.github.dengchen2020.ratelimiter.annotation;
+
+/**
+ * 自适应并发限制算法
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public enum ConcurrencyLimitAlgorithm {
+    /**
+     * 加性增乘性减：延迟未超过阈值且并发接近上限时上限+1，延迟超过阈值或请求失败时上限乘以0.9
+     */
+    aimd,
+    /**
+     * 梯度算法，默认选项：根据长期平均延迟与当前延迟的比值调整上限，延迟上升时自动收缩，无需设置延迟阈值
+     */
+    gradient
+}
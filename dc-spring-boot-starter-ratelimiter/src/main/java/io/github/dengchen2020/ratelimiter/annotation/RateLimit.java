@@ -5,6 +5,7 @@ import java.util.concurrent.TimeUnit;
 
 /**
  * 限流注解
+ * <p>可重复声明实现多维度限流（如同时按用户、租户、接口限流），所有维度原子判断，任一维度被限流则都不计数</p>
  *
  * @author xiaochen
  * @since 2024/4/18
@@ -12,6 +13,7 @@ import java.util.concurrent.TimeUnit;
 @Documented
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.METHOD, ElementType.TYPE})
+@Repeatable(RateLimits.class)
 public @interface RateLimit {
 
     /**
@@ -39,5 +41,10 @@ public @interface RateLimit {
      */
     RateLimitStrategy strategy() default RateLimitStrategy.userAndUri;
 
+    /**
+     * 限流算法，{@link RateLimitAlgorithm#gcra}在单机版下同样支持任意时间级别
+     */
+    RateLimitAlgorithm algorithm() default RateLimitAlgorithm.fixedWindow;
+
 }
 
@@ -0,0 +1,17 @@
+package io.github.dengchen2020.ratelimiter.annotation;
+
+/**
+ * 限流算法
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public enum RateLimitAlgorithm {
+    /**
+     * 固定窗口计数，默认选项
+     */
+    fixedWindow,
+    /**
+     * GCRA（通用信元速率算法），每个key只保存一个理论到达时间，平滑限流并允许一定突发，被限流时可精确计算需等待的时间
+     */
+    gcra
+}
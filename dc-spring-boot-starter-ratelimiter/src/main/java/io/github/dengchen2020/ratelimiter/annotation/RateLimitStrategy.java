@@ -25,5 +25,9 @@ public enum RateLimitStrategy {
     /**
      * 根据uri限流
      */
-    uri
+    uri,
+    /**
+     * 根据租户限流，不可用时回退为user
+     */
+    tenant
 }
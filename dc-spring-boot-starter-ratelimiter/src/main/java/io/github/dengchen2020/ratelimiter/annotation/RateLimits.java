@@ -0,0 +1,19 @@
+package io.github.dengchen2020.ratelimiter.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 多维度限流注解，所有限流维度同时判断，任一维度被限流则整体被限流且不消耗其他维度的次数
+ * <p>通常无需直接使用，在同一位置重复声明{@link RateLimit}即可</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface RateLimits {
+
+    RateLimit[] value();
+
+}
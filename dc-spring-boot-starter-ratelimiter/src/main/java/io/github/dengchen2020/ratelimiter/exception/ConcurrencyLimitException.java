@@ -0,0 +1,14 @@
+package io.github.dengchen2020.ratelimiter.exception;
+
+import io.github.dengchen2020.core.exception.ViewToastException;
+
+/**
+ * 超出并发限制异常，抛出前响应状态码已设置为503
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class ConcurrencyLimitException extends ViewToastException {
+    public ConcurrencyLimitException(String message) {
+        super(message, ViewToastException.CODE, null, false);
+    }
+}
@@ -11,9 +11,15 @@ import java.util.concurrent.TimeUnit;
  */
 public class RateLimitException extends ViewToastException {
     private final TimeUnit timeUnit;
+    private final long retryAfterMillis;
     public RateLimitException(String message, TimeUnit timeUnit) {
+        this(message, timeUnit, 0);
+    }
+
+    public RateLimitException(String message, TimeUnit timeUnit, long retryAfterMillis) {
         super(message, ViewToastException.CODE, null, false);
         this.timeUnit = timeUnit;
+        this.retryAfterMillis = retryAfterMillis;
     }
 
     /**
@@ -22,4 +28,11 @@ public class RateLimitException extends ViewToastException {
     public TimeUnit getTimeUnit() {
         return timeUnit;
     }
+
+    /**
+     * 距离下次允许请求需等待的毫秒数，0表示未知
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
 }
@@ -0,0 +1,131 @@
+package io.github.dengchen2020.ratelimiter.local;
+
+import io.github.dengchen2020.ratelimiter.annotation.ConcurrencyLimitAlgorithm;
+import org.jspecify.annotations.NullMarked;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 自适应并发限制实现
+ * <p>根据请求延迟动态调整允许同时处理的请求数上限，延迟上升时收缩上限快速拒绝多余请求，延迟恢复后逐步放开</p>
+ * <p>使用方式：{@link #tryAcquire()}成功后，请求结束时必须调用{@link #release(long, boolean)}</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class AdaptiveConcurrencyLimiter {
+
+    // AIMD收缩比例
+    private static final double BACKOFF_RATIO = 0.9;
+    // 梯度算法：长期延迟的平滑窗口（样本数）
+    private static final int LONG_WINDOW = 600;
+    // 梯度算法：允许延迟相对长期平均上升的倍数
+    private static final double TOLERANCE = 1.5;
+    // 梯度算法：上限变化的平滑系数
+    private static final double SMOOTHING = 0.2;
+
+    private final ConcurrencyLimitAlgorithm algorithm;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // 估算的并发上限，仅在持有lock时修改
+    private volatile double estimatedLimit;
+    private volatile int limit;
+    // 梯度算法的长期平均延迟（纳秒），指数移动平均
+    private double longRtt;
+    private int samples;
+
+    /**
+     * 自适应并发限制实例化
+     *
+     * @param algorithm 调整算法
+     * @param initialLimit 初始并发上限
+     * @param minLimit 最小并发上限
+     * @param maxLimit 最大并发上限
+     * @param latencyThreshold 延迟阈值，仅{@link ConcurrencyLimitAlgorithm#aimd}有效
+     */
+    public AdaptiveConcurrencyLimiter(ConcurrencyLimitAlgorithm algorithm, int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold) {
+        if (minLimit <= 0 || maxLimit < minLimit) throw new IllegalArgumentException("并发上限必须满足0 < minLimit <= maxLimit，当前值：" + minLimit + "，" + maxLimit);
+        this.algorithm = algorithm;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.estimatedLimit = Math.clamp(initialLimit, minLimit, maxLimit);
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * 尝试占用一个并发名额
+     * @return true：占用成功，false：已达到并发上限
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit) return false;
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    /**
+     * 释放并发名额并记录本次请求的延迟
+     * @param rttNanos 请求耗时（纳秒）
+     * @param dropped 请求是否失败（异常或5xx），失败视为过载信号
+     */
+    public void release(long rttNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        // 采样更新上限，竞争时跳过本次样本，避免请求线程互相等待
+        if (!lock.tryLock()) return;
+        try {
+            double newLimit = switch (algorithm) {
+                case aimd -> aimd(rttNanos, dropped, current);
+                case gradient -> gradient(rttNanos, dropped, current);
+            };
+            estimatedLimit = Math.clamp(newLimit, minLimit, maxLimit);
+            limit = (int) estimatedLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double aimd(long rttNanos, boolean dropped, int current) {
+        if (dropped || rttNanos > latencyThresholdNanos) return estimatedLimit * BACKOFF_RATIO;
+        // 只有并发接近上限时才放大，避免低负载时上限无限增长
+        if (current * 2 >= limit) return estimatedLimit + 1;
+        return estimatedLimit;
+    }
+
+    private double gradient(long rttNanos, boolean dropped, int current) {
+        if (dropped) return estimatedLimit * BACKOFF_RATIO;
+        if (samples < LONG_WINDOW) samples++;
+        longRtt = samples == 1 ? rttNanos : longRtt + (rttNanos - longRtt) / samples;
+        // 长期延迟远高于当前延迟时向下修正，避免负载恢复后上限迟迟不放开
+        if (longRtt / rttNanos > 2) longRtt *= 0.95;
+        // 并发未达到上限的一半时说明不是瓶颈，不做调整
+        if (current * 2 < limit) return estimatedLimit;
+        double gradient = Math.clamp(TOLERANCE * longRtt / Math.max(rttNanos, 1L), 0.5, 1.0);
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        return estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    }
+
+    /**
+     * 当前并发上限
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * 当前正在处理的请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
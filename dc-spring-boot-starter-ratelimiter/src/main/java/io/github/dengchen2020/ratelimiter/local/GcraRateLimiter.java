@@ -0,0 +1,208 @@
+package io.github.dengchen2020.ratelimiter.local;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单机限流实现
+ * <p>GCRA（通用信元速率算法）实现，每个key只保存一个理论到达时间（TAT），平滑限流并允许一定的突发，
+ * 被限流时可精确计算出需要等待的时间</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class GcraRateLimiter implements AutoCloseable {
+
+    // 存储每个key的理论到达时间（System.nanoTime()时间基准）
+    private final Map<String, AtomicLong> tats = new ConcurrentHashMap<>();
+
+    // 已被清理的标记，持有该TAT的线程需重新获取
+    private static final long RETIRED = Long.MIN_VALUE;
+
+    // 异步获取许可的等待队列
+    private final PermitWaiters waiters = new PermitWaiters();
+
+    // 定时清理线程池，首次使用时创建
+    private volatile @Nullable ScheduledExecutorService cleaner;
+
+    private volatile boolean closed;
+
+    /**
+     * 尝试获取一次请求许可，允许的突发数等于limitNum
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param duration 时间窗口
+     * @return 0：允许请求，大于0：触发限流，值为距离下次允许请求需等待的毫秒数
+     */
+    public long tryAcquire(String limitKey, int limitNum, Duration duration) {
+        return tryAcquire(limitKey, limitNum, duration, limitNum, 1);
+    }
+
+    /**
+     * 尝试获取请求许可
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param duration 时间窗口
+     * @param burst 允许的突发数，最小为1（即完全平滑，两次请求间隔不小于duration/limitNum）
+     * @param permits 本次需要的许可数
+     * @return 0：允许请求，大于0：触发限流，值为距离下次允许请求需等待的毫秒数
+     */
+    public long tryAcquire(String limitKey, int limitNum, Duration duration, int burst, int permits) {
+        if (duration.isZero() || duration.isNegative()) throw new IllegalArgumentException("无效的时间窗口: " + duration);
+        if (limitNum <= 0) return duration.toMillis();
+        if (permits <= 0) throw new IllegalArgumentException("许可数必须大于0");
+        // 每个请求的发射间隔
+        long emissionInterval = Math.max(duration.toNanos() / limitNum, 1L);
+        long burstOffset = emissionInterval * Math.max(burst, 1);
+        long increment = emissionInterval * permits;
+        if (cleaner == null) startCleaner();
+        var tat = tats.computeIfAbsent(limitKey, _ -> new AtomicLong(System.nanoTime()));
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            if (current == RETIRED) {
+                // 已被清理，重新获取
+                tat = tats.computeIfAbsent(limitKey, _ -> new AtomicLong(System.nanoTime()));
+                continue;
+            }
+            long newTat = (current - now < 0 ? now : current) + increment;
+            long waitNanos = newTat - burstOffset - now;
+            if (waitNanos > 0) return toMillisCeil(waitNanos);
+            if (tat.compareAndSet(current, newTat)) return 0;
+        }
+    }
+
+    /**
+     * 限流判断
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param duration 时间窗口
+     * @return true：触发限流，false：允许请求
+     */
+    public boolean limit(String limitKey, int limitNum, Duration duration) {
+        return tryAcquire(limitKey, limitNum, duration) > 0;
+    }
+
+    /**
+     * 撤销一次已获取的请求许可，用于多维度限流中其他维度被限流时归还许可
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param duration 时间窗口
+     */
+    public void rollback(String limitKey, int limitNum, Duration duration) {
+        if (limitNum <= 0) return;
+        var tat = tats.get(limitKey);
+        if (tat == null) return;
+        long emissionInterval = Math.max(duration.toNanos() / limitNum, 1L);
+        tat.getAndUpdate(current -> current == RETIRED ? RETIRED : current - emissionInterval);
+    }
+
+    /**
+     * 异步获取一次请求许可，等待期间不占用线程，许可可用时由共用定时器完成
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param duration 时间窗口
+     * @param waitTime 等待超时时间，为null表示一直等待
+     * @return true：获取成功，false：等待超时
+     */
+    public CompletableFuture<Boolean> tryAcquireAsync(String limitKey, int limitNum, Duration duration, @Nullable Duration waitTime) {
+        return tryAcquireAsync(limitKey, limitNum, duration, 1, waitTime);
+    }
+
+    /**
+     * 异步获取请求许可，等待期间不占用线程，同一key的等待者按先后顺序获取，允许的突发数等于limitNum
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param duration 时间窗口
+     * @param permits 本次需要的许可数，超过limitNum时永远无法获取，直接返回false
+     * @param waitTime 等待超时时间，为null表示一直等待
+     * @return true：获取成功，false：等待超时
+     */
+    public CompletableFuture<Boolean> tryAcquireAsync(String limitKey, int limitNum, Duration duration, int permits, @Nullable Duration waitTime) {
+        if (duration.isZero() || duration.isNegative()) throw new IllegalArgumentException("无效的时间窗口: " + duration);
+        if (permits <= 0) throw new IllegalArgumentException("许可数必须大于0");
+        if (limitNum <= 0 || permits > limitNum) return CompletableFuture.completedFuture(false);
+        long deadline = waitTime == null ? Long.MAX_VALUE : System.currentTimeMillis() + Math.max(waitTime.toMillis(), 0L);
+        return waiters.acquire(limitKey, permits, deadline, p -> closed ? -1 : tryAcquire(limitKey, limitNum, duration, limitNum, p));
+    }
+
+    /**
+     * 异步获取请求许可，一直等待直到获取成功，同一key的等待者按先后顺序获取
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param duration 时间窗口
+     * @param permits 本次需要的许可数，不能超过limitNum
+     * @return 获取到许可时完成，限流器已关闭时异常完成
+     */
+    public CompletableFuture<Void> acquireAsync(String limitKey, int limitNum, Duration duration, int permits) {
+        if (limitNum <= 0 || permits > limitNum) throw new IllegalArgumentException("许可数" + permits + "超过时间窗口内的最大允许次数" + limitNum);
+        var future = tryAcquireAsync(limitKey, limitNum, duration, permits, null);
+        CompletableFuture<Void> result = future.thenCompose(acquired -> acquired ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(new IllegalStateException("限流器已关闭")));
+        // 取消时同步取消内部等待
+        result.whenComplete((_, _) -> {
+            if (result.isCancelled()) future.cancel(false);
+        });
+        return result;
+    }
+
+    /**
+     * 重置指定Key的限流状态
+     */
+    public void reset(String limitKey) {
+        var tat = tats.remove(limitKey);
+        if (tat != null) tat.set(RETIRED);
+    }
+
+    private static long toMillisCeil(long nanos) {
+        return (nanos + 999_999L) / 1_000_000L;
+    }
+
+    private synchronized void startCleaner() {
+        if (cleaner != null || closed) return;
+        var executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("gcra-rate-limiter-cleaner").factory());
+        executor.scheduleWithFixedDelay(this::cleanExpiredKeys, 2000L, 3000L, TimeUnit.MILLISECONDS);
+        cleaner = executor;
+    }
+
+    /**
+     * 清理理论到达时间已过去的key，此时key的状态与不存在时等价
+     * <p>先通过CAS将TAT标记为已清理再移除，与并发的获取许可互斥，避免更新落在已移除的TAT上</p>
+     */
+    private void cleanExpiredKeys() {
+        if (tats.isEmpty()) return;
+        for (var entry : tats.entrySet()) {
+            var tat = entry.getValue();
+            long current = tat.get();
+            if (current != RETIRED && current - System.nanoTime() >= 0) continue;
+            if (current == RETIRED || tat.compareAndSet(current, RETIRED)) tats.remove(entry.getKey(), tat);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        var executor = cleaner;
+        if (executor != null) executor.shutdown();
+        tats.clear();
+    }
+}
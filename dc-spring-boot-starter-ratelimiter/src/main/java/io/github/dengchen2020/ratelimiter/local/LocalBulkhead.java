@@ -0,0 +1,157 @@
+package io.github.dengchen2020.ratelimiter.local;
+
+import io.github.dengchen2020.ratelimiter.BulkheadPermit;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单机舱壁实现，限制每个key同时执行的数量，超出时可有限排队
+ * <p>未满时只需一次CAS，不加锁；空闲的key定时清理</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class LocalBulkhead implements AutoCloseable {
+
+    private final Map<String, Compartment> compartments = new ConcurrentHashMap<>();
+
+    // 定时清理线程池
+    private final ScheduledExecutorService cleaner;
+
+    public LocalBulkhead() {
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("local-bulkhead-cleaner").factory());
+        this.cleaner.scheduleWithFixedDelay(this::cleanIdleKeys, 5000L, 5000L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 尝试占用一个名额，不排队
+     *
+     * @param key 舱壁标识（如租户ID）
+     * @param maxConcurrent 最大同时执行数
+     * @return 名额，为null表示已满
+     */
+    public @Nullable BulkheadPermit tryAcquire(String key, int maxConcurrent) {
+        return tryAcquire(key, maxConcurrent, 0, Duration.ZERO);
+    }
+
+    /**
+     * 尝试占用一个名额，已满时排队等待
+     *
+     * @param key 舱壁标识（如租户ID）
+     * @param maxConcurrent 最大同时执行数
+     * @param maxWaiting 最大排队数，0表示不排队
+     * @param waitTime 排队等待时长
+     * @return 名额，为null表示已满且排队已满或等待超时
+     */
+    public @Nullable BulkheadPermit tryAcquire(String key, int maxConcurrent, int maxWaiting, Duration waitTime) {
+        if (maxConcurrent <= 0) return null;
+        long deadline = System.nanoTime() + Math.max(waitTime.toNanos(), 0L);
+        while (true) {
+            var compartment = compartments.computeIfAbsent(key, _ -> new Compartment());
+            int result = compartment.tryAcquire(maxConcurrent);
+            if (result == Compartment.ACQUIRED) return compartment;
+            // 被清理的舱壁重新获取
+            if (result == Compartment.RETIRED) continue;
+            if (maxWaiting <= 0) return null;
+            result = compartment.await(maxConcurrent, maxWaiting, deadline);
+            if (result == Compartment.ACQUIRED) return compartment;
+            if (result == Compartment.FULL) return null;
+        }
+    }
+
+    /**
+     * 当前正在执行的数量
+     */
+    public int inFlight(String key) {
+        var compartment = compartments.get(key);
+        return compartment == null ? 0 : Math.max(compartment.inFlight.get(), 0);
+    }
+
+    /**
+     * 清理没有执行中和排队中请求的key，先将计数置为-1标记为已清理，避免与并发占用冲突
+     */
+    private void cleanIdleKeys() {
+        if (compartments.isEmpty()) return;
+        compartments.entrySet().removeIf(entry -> {
+            var compartment = entry.getValue();
+            return compartment.waiting.get() == 0 && compartment.inFlight.compareAndSet(0, Compartment.RETIRED_FLAG);
+        });
+    }
+
+    @Override
+    public void close() {
+        cleaner.shutdown();
+        compartments.clear();
+    }
+
+    private static final class Compartment implements BulkheadPermit {
+
+        static final int ACQUIRED = 0;
+        static final int FULL = 1;
+        static final int RETIRED = 2;
+        static final int RETIRED_FLAG = -1;
+
+        // 执行中的数量，-1表示已被清理
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger waiting = new AtomicInteger();
+        final ReentrantLock lock = new ReentrantLock();
+        final Condition released = lock.newCondition();
+
+        int tryAcquire(int maxConcurrent) {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current < 0) return RETIRED;
+                if (current >= maxConcurrent) return FULL;
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return ACQUIRED;
+        }
+
+        int await(int maxConcurrent, int maxWaiting, long deadline) {
+            if (waiting.incrementAndGet() > maxWaiting) {
+                waiting.decrementAndGet();
+                return FULL;
+            }
+            lock.lock();
+            try {
+                while (true) {
+                    int result = tryAcquire(maxConcurrent);
+                    if (result != FULL) return result;
+                    long nanos = deadline - System.nanoTime();
+                    if (nanos <= 0) return FULL;
+                    released.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return FULL;
+            } finally {
+                lock.unlock();
+                waiting.decrementAndGet();
+            }
+        }
+
+        @Override
+        public void release() {
+            inFlight.decrementAndGet();
+            if (waiting.get() > 0) {
+                lock.lock();
+                try {
+                    released.signal();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package io.github.dengchen2020.ratelimiter.local;
 
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
 import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -29,6 +31,11 @@ public class LocalRateLimiter implements AutoCloseable {
     // 定时清理线程池
     private final ScheduledExecutorService cleaner;
 
+    // 异步获取许可的等待队列
+    private final PermitWaiters waiters = new PermitWaiters();
+
+    private volatile boolean closed;
+
     /**
      * 限流实例化
      *
@@ -65,6 +72,86 @@ public class LocalRateLimiter implements AutoCloseable {
         return counter.checkAndIncrement(limitNum, currentTime, windowMillis);
     }
 
+    /**
+     * 获取一次请求许可，返回本次计数所在窗口的开始时间，用于撤销
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @return 本次计数所在窗口的开始时间，小于0表示触发限流
+     */
+    public long acquire(String limitKey, int limitNum) {
+        if (limitNum <= 0) return -1;
+        long currentTime = System.currentTimeMillis();
+        var counter = counters.computeIfAbsent(limitKey, _ -> new WindowCounter(currentTime));
+        if (counter.checkAndIncrement(limitNum, currentTime, windowMillis)) return -1;
+        return counter.windowStartTime.get();
+    }
+
+    /**
+     * 尝试获取请求许可
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param permits 本次需要的许可数
+     * @return 0：允许请求，大于0：触发限流，值为距离当前窗口结束需等待的毫秒数，小于0：许可数超过limitNum，永远无法获取
+     */
+    public long tryAcquire(String limitKey, int limitNum, int permits) {
+        if (permits <= 0) throw new IllegalArgumentException("许可数必须大于0");
+        if (limitNum <= 0 || permits > limitNum) return -1;
+        long currentTime = System.currentTimeMillis();
+        var counter = counters.computeIfAbsent(limitKey, _ -> new WindowCounter(currentTime));
+        if (!counter.checkAndAdd(limitNum, permits, currentTime, windowMillis)) return 0;
+        return Math.max(counter.windowStartTime.get() + windowMillis - currentTime, 1L);
+    }
+
+    /**
+     * 异步获取请求许可，等待期间不占用线程，在窗口切换时由共用定时器唤醒，同一key的等待者按先后顺序获取
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param permits 本次需要的许可数，超过limitNum时永远无法获取，直接返回false
+     * @param waitTime 等待超时时间，为null表示一直等待
+     * @return true：获取成功，false：等待超时、限流器已关闭或许可数超过limitNum
+     */
+    public CompletableFuture<Boolean> tryAcquireAsync(String limitKey, int limitNum, int permits, @Nullable Duration waitTime) {
+        if (permits <= 0) throw new IllegalArgumentException("许可数必须大于0");
+        if (closed) return CompletableFuture.completedFuture(false);
+        long deadline = waitTime == null ? Long.MAX_VALUE : System.currentTimeMillis() + Math.max(waitTime.toMillis(), 0L);
+        return waiters.acquire(limitKey, permits, deadline, p -> closed ? -1 : tryAcquire(limitKey, limitNum, p));
+    }
+
+    /**
+     * 异步获取请求许可，一直等待直到获取成功，同一key的等待者按先后顺序获取
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     *
+     * @param limitKey 限流标识符（如用户ID、接口路径）
+     * @param limitNum 时间窗口内的最大允许次数
+     * @param permits 本次需要的许可数，不能超过limitNum
+     * @return 获取到许可时完成，限流器已关闭时异常完成
+     */
+    public CompletableFuture<Void> acquireAsync(String limitKey, int limitNum, int permits) {
+        if (limitNum <= 0 || permits > limitNum) throw new IllegalArgumentException("许可数" + permits + "超过时间窗口内的最大允许次数" + limitNum);
+        var future = tryAcquireAsync(limitKey, limitNum, permits, null);
+        CompletableFuture<Void> result = future.thenCompose(acquired -> acquired ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(new IllegalStateException("限流器已关闭")));
+        // 取消时同步取消内部等待
+        result.whenComplete((_, _) -> {
+            if (result.isCancelled()) future.cancel(false);
+        });
+        return result;
+    }
+
+    /**
+     * 撤销一次已允许的请求计数，用于多维度限流中其他维度被限流时归还次数，窗口已切换时不撤销
+     *
+     * @param limitKey 限流标识符
+     * @param windowStartTime {@link #acquire(String, int)}返回的窗口开始时间
+     */
+    public void rollback(String limitKey, long windowStartTime) {
+        var counter = counters.get(limitKey);
+        if (counter != null && counter.windowStartTime.get() == windowStartTime) counter.count.getAndUpdate(c -> c > 0 ? c - 1 : 0);
+    }
+
     /**
      * 清理过期的key
      */
@@ -77,6 +164,7 @@ public class LocalRateLimiter implements AutoCloseable {
 
     @Override
     public void close() {
+        closed = true;
         // 关闭定时任务
         cleaner.shutdown();
         // 清理资源
@@ -100,12 +188,21 @@ public class LocalRateLimiter implements AutoCloseable {
          * 检查并计数
          */
         boolean checkAndIncrement(int limitNum, long currentTime, long windowMillis) {
+            return checkAndAdd(limitNum, 1, currentTime, windowMillis);
+        }
+
+        /**
+         * 检查并增加多个计数
+         * @param permits 增加的计数，不超过limitNum
+         * @return true：超过限制，未计数
+         */
+        boolean checkAndAdd(int limitNum, int permits, long currentTime, long windowMillis) {
             // 检查窗口是否需要重置
             long currentWindowStart = windowStartTime.get();
             if (currentTime - currentWindowStart >= windowMillis) {
                 // 窗口重置
                 if (windowStartTime.compareAndSet(currentWindowStart, currentTime)) {
-                    count.set(1);
+                    count.set(permits);
                     return false; // 第一次总是允许
                 }
             }
@@ -113,8 +210,8 @@ public class LocalRateLimiter implements AutoCloseable {
             int currentCount;
             do {
                 currentCount = count.get();
-                if (currentCount >= limitNum) return true; // 超过限制
-            } while (!count.compareAndSet(currentCount, currentCount + 1));
+                if (currentCount + permits > limitNum) return true; // 超过限制
+            } while (!count.compareAndSet(currentCount, currentCount + permits));
             return false;
         }
     }
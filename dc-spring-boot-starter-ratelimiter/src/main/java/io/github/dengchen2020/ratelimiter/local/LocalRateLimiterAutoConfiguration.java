@@ -1,8 +1,12 @@
 package io.github.dengchen2020.ratelimiter.local;
 
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.ratelimiter.properties.RateLimiterProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -23,13 +27,30 @@ public final class LocalRateLimiterAutoConfiguration implements WebMvcConfigurer
 
     private final RateLimiterProperties properties;
 
-    LocalRateLimiterAutoConfiguration(RateLimiterProperties properties) {
+    private final ObjectProvider<LocalRateLimiterInterceptor> localRateLimiterInterceptor;
+
+    private final ObjectProvider<HandlerMethodMetadataRegistry> handlerMethodMetadataRegistry;
+
+    LocalRateLimiterAutoConfiguration(RateLimiterProperties properties, ObjectProvider<LocalRateLimiterInterceptor> localRateLimiterInterceptor,
+                                      ObjectProvider<HandlerMethodMetadataRegistry> handlerMethodMetadataRegistry) {
         this.properties = properties;
+        this.localRateLimiterInterceptor = localRateLimiterInterceptor;
+        this.handlerMethodMetadataRegistry = handlerMethodMetadataRegistry;
+    }
+
+    /**
+     * 注册为Bean，应用关闭时停止各限流器的清理线程
+     */
+    @ConditionalOnProperty(value = "dc.ratelimiter.enabled", havingValue = "true", matchIfMissing = true)
+    @Bean
+    LocalRateLimiterInterceptor localRateLimiterInterceptor() {
+        return new LocalRateLimiterInterceptor(new LocalRateLimiter(Duration.ofSeconds(1)), new LocalRateLimiter(Duration.ofMinutes(1)), new GcraRateLimiter(), new LocalBulkhead(), properties.getErrorMsg(),
+                handlerMethodMetadataRegistry.getIfAvailable(HandlerMethodMetadataRegistry::new));
     }
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        if (properties.isEnabled()) registry.addInterceptor(new LocalRateLimiterInterceptor(new LocalRateLimiter(Duration.ofSeconds(1)), new LocalRateLimiter(Duration.ofMinutes(1)), properties.getErrorMsg()));
+        localRateLimiterInterceptor.ifAvailable(registry::addInterceptor);
     }
 
 }
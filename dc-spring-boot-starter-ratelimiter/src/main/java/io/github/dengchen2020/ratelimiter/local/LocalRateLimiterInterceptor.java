@@ -1,28 +1,43 @@
 package io.github.dengchen2020.ratelimiter.local;
 
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.ratelimiter.AbstractRateLimiterInterceptor;
+import io.github.dengchen2020.ratelimiter.BulkheadPermit;
+import io.github.dengchen2020.ratelimiter.MultiRateLimitResult;
+import io.github.dengchen2020.ratelimiter.annotation.Bulkhead;
 import io.github.dengchen2020.ratelimiter.annotation.RateLimit;
+import io.github.dengchen2020.ratelimiter.annotation.RateLimitAlgorithm;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
 
 /**
  * 单机限流拦截器
+ * <p>持有各限流器，随Bean销毁时关闭</p>
  *
  * @author xiaochen
  * @since 2024/8/3
  */
 @NullMarked
-final class LocalRateLimiterInterceptor extends AbstractRateLimiterInterceptor {
+final class LocalRateLimiterInterceptor extends AbstractRateLimiterInterceptor implements AutoCloseable {
 
     private final LocalRateLimiter secondRateLimiter;
 
     private final LocalRateLimiter minuteRateLimiter;
 
-    public LocalRateLimiterInterceptor(LocalRateLimiter secondRateLimiter, LocalRateLimiter minuteRateLimiter, String errorMsg) {
-        super(errorMsg);
+    private final GcraRateLimiter gcraRateLimiter;
+
+    private final LocalBulkhead localBulkhead;
+
+    public LocalRateLimiterInterceptor(LocalRateLimiter secondRateLimiter, LocalRateLimiter minuteRateLimiter, GcraRateLimiter gcraRateLimiter,
+                                       LocalBulkhead localBulkhead, String errorMsg, HandlerMethodMetadataRegistry handlerMethodMetadataRegistry) {
+        super(errorMsg, handlerMethodMetadataRegistry);
         this.secondRateLimiter = secondRateLimiter;
         this.minuteRateLimiter = minuteRateLimiter;
+        this.gcraRateLimiter = gcraRateLimiter;
+        this.localBulkhead = localBulkhead;
     }
 
     @Override
@@ -35,8 +50,68 @@ final class LocalRateLimiterInterceptor extends AbstractRateLimiterInterceptor {
         }
         return rateLimiter.limit(limitKey, rateLimit.value());
     }
-}
 
+    @Override
+    protected long tryAcquire(RateLimit rateLimit, String limitKey) {
+        if (rateLimit.algorithm() == RateLimitAlgorithm.gcra) {
+            return gcraRateLimiter.tryAcquire(limitKey, rateLimit.value(), Duration.of(rateLimit.time(), rateLimit.timeUnit().toChronoUnit()));
+        }
+        if (!limit(rateLimit, limitKey)) return 0;
+        return rateLimit.timeUnit() == TimeUnit.MINUTES ? 60_000L : 1_000L;
+    }
+
+    /**
+     * 多维度限流依次获取，被限流时只撤销各维度本次计数所在的窗口，窗口已切换的不撤销
+     */
+    @Override
+    protected MultiRateLimitResult tryAcquireAll(RateLimit[] rateLimits, String[] limitKeys) {
+        var windowStartTimes = new long[rateLimits.length];
+        for (int i = 0; i < rateLimits.length; i++) {
+            var rateLimit = rateLimits[i];
+            long retryAfterMillis;
+            if (rateLimit.algorithm() == RateLimitAlgorithm.gcra) {
+                retryAfterMillis = gcraRateLimiter.tryAcquire(limitKeys[i], rateLimit.value(), duration(rateLimit));
+            } else {
+                windowStartTimes[i] = rateLimiter(rateLimit).acquire(limitKeys[i], rateLimit.value());
+                retryAfterMillis = windowStartTimes[i] < 0 ? windowMillis(rateLimit) : 0;
+            }
+            if (retryAfterMillis > 0) {
+                for (int j = 0; j < i; j++) {
+                    var acquired = rateLimits[j];
+                    if (acquired.algorithm() == RateLimitAlgorithm.gcra) {
+                        gcraRateLimiter.rollback(limitKeys[j], acquired.value(), duration(acquired));
+                    } else {
+                        rateLimiter(acquired).rollback(limitKeys[j], windowStartTimes[j]);
+                    }
+                }
+                return new MultiRateLimitResult(retryAfterMillis, i);
+            }
+        }
+        return MultiRateLimitResult.ALLOWED;
+    }
+
+    private LocalRateLimiter rateLimiter(RateLimit rateLimit) {
+        return rateLimit.timeUnit() == TimeUnit.MINUTES ? minuteRateLimiter : secondRateLimiter;
+    }
 
+    private static long windowMillis(RateLimit rateLimit) {
+        return rateLimit.timeUnit() == TimeUnit.MINUTES ? 60_000L : 1_000L;
+    }
+
+    private static Duration duration(RateLimit rateLimit) {
+        return Duration.of(rateLimit.time(), rateLimit.timeUnit().toChronoUnit());
+    }
 
+    @Override
+    protected @Nullable BulkheadPermit tryAcquireBulkhead(Bulkhead bulkhead, String key) {
+        return localBulkhead.tryAcquire(key, bulkhead.value(), bulkhead.maxWaiting(), Duration.ofMillis(bulkhead.waitTime()));
+    }
 
+    @Override
+    public void close() {
+        secondRateLimiter.close();
+        minuteRateLimiter.close();
+        gcraRateLimiter.close();
+        localBulkhead.close();
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.dengchen2020.ratelimiter.local;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 异步获取许可的等待队列，每个key一个先进先出队列
+ * <p>只有队首在许可可用时由{@link RateLimiterTimer}唤醒一次，获取成功后继续尝试下一个，
+ * 每个许可只需一次尝试，不会出现所有等待者同时被唤醒后只有一个成功的情况，先等待的先获取，不会饿死</p>
+ * <p>队列存在于映射表中时，必然有一次待执行的唤醒；队列的修改都在{@link ConcurrentHashMap#compute}中进行，
+ * 完成{@link CompletableFuture}在映射表之外执行，调用方的后续回调不会阻塞同一key的其他请求</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+final class PermitWaiters {
+
+    /**
+     * 一次获取许可的尝试
+     */
+    @FunctionalInterface
+    interface Attempt {
+
+        /**
+         * @param permits 需要的许可数
+         * @return 0：获取成功，大于0：距离许可可用需等待的毫秒数，小于0：永远无法获取（如限流器已关闭、许可数超过上限）
+         */
+        long tryAcquire(int permits);
+
+    }
+
+    private record Waiter(int permits, long deadline, Attempt attempt, CompletableFuture<Boolean> future) {}
+
+    private final Map<String, ArrayDeque<Waiter>> queues = new ConcurrentHashMap<>();
+
+    /**
+     * 获取许可，前面有等待者时排队
+     * @param key 限流标识
+     * @param permits 需要的许可数
+     * @param deadline 截止时间（毫秒时间戳），为{@link Long#MAX_VALUE}时一直等待
+     * @param attempt 获取许可的尝试，排到队首时才会执行
+     * @return true：获取成功，false：超时或永远无法获取；取消即可放弃等待
+     */
+    CompletableFuture<Boolean> acquire(String key, int permits, long deadline, Attempt attempt) {
+        var future = new CompletableFuture<Boolean>();
+        var waiter = new Waiter(permits, deadline, attempt, future);
+        long[] delay = {-1};
+        // 不需要排队时的结果
+        Boolean[] immediate = new Boolean[1];
+        queues.compute(key, (_, queue) -> {
+            if (queue != null) {
+                queue.addLast(waiter);
+                return queue;
+            }
+            long wait = attempt.tryAcquire(permits);
+            if (wait <= 0 || System.currentTimeMillis() + wait > deadline) {
+                immediate[0] = wait == 0;
+                return null;
+            }
+            queue = new ArrayDeque<>();
+            queue.addLast(waiter);
+            delay[0] = wait;
+            return queue;
+        });
+        if (immediate[0] != null) {
+            future.complete(immediate[0]);
+            return future;
+        }
+        if (delay[0] >= 0) RateLimiterTimer.schedule(() -> drain(key), delay[0]);
+        // 排在后面的等待者到达截止时间时直接失败，队首遇到已完成的等待者会跳过
+        if (deadline != Long.MAX_VALUE) RateLimiterTimer.schedule(() -> future.complete(false), deadline - System.currentTimeMillis());
+        return future;
+    }
+
+    /**
+     * 依次为队首获取许可，许可不足时在可用时再次唤醒
+     */
+    private void drain(String key) {
+        List<Waiter> acquired = new ArrayList<>();
+        List<Waiter> rejected = new ArrayList<>();
+        long[] delay = {-1};
+        queues.computeIfPresent(key, (_, queue) -> {
+            while (!queue.isEmpty()) {
+                var head = queue.peekFirst();
+                if (head.future().isDone()) {
+                    queue.pollFirst();
+                    continue;
+                }
+                long wait = head.attempt().tryAcquire(head.permits());
+                if (wait == 0) {
+                    acquired.add(queue.pollFirst());
+                } else if (wait < 0 || System.currentTimeMillis() + wait > head.deadline()) {
+                    rejected.add(queue.pollFirst());
+                } else {
+                    delay[0] = wait;
+                    return queue;
+                }
+            }
+            return null;
+        });
+        for (var waiter : acquired) waiter.future().complete(true);
+        for (var waiter : rejected) waiter.future().complete(false);
+        if (delay[0] >= 0) RateLimiterTimer.schedule(() -> drain(key), delay[0]);
+    }
+
+}
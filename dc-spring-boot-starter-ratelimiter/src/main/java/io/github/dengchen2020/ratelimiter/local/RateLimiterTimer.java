@@ -0,0 +1,32 @@
+package io.github.dengchen2020.ratelimiter.local;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步获取许可共用的定时器，等待中的请求只占用一个延迟任务，不占用线程
+ * <p>定时器线程只负责到期分发，任务在虚拟线程中执行，调用方的后续回调不会阻塞其他等待中的请求</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+final class RateLimiterTimer {
+
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("rate-limiter-timer").factory());
+
+    private static final Executor executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("rate-limiter-waiter-", 0).factory());
+
+    private RateLimiterTimer() {}
+
+    /**
+     * 延迟执行任务
+     * @param task 任务，在虚拟线程中执行
+     * @param delayMillis 延迟毫秒数
+     */
+    static void schedule(Runnable task, long delayMillis) {
+        timer.schedule(() -> executor.execute(task), Math.max(delayMillis, 1L), TimeUnit.MILLISECONDS);
+    }
+
+}
@@ -8,7 +8,9 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -55,20 +57,28 @@ public class TokenBucketRateLimiter implements AutoCloseable {
         }
 
         boolean tryTakeToken() {
-            long now = System.currentTimeMillis();
-            long currentNextTime = nextTokenTime.get();
-            if (now >= currentNextTime) {
-                long newNextTime = now + tokenIntervalMs;
-                if (nextTokenTime.compareAndSet(currentNextTime, newNextTime)) {
+            return tryTakeTokens(1) == 0;
+        }
+
+        /**
+         * 一次获取多个令牌，下一个令牌时间顺延相应的间隔
+         * @return 0：获取成功，大于0：距离下一个令牌生成需等待的毫秒数
+         */
+        long tryTakeTokens(int permits) {
+            while (true) {
+                long now = System.currentTimeMillis();
+                long currentNextTime = nextTokenTime.get();
+                if (now < currentNextTime) return currentNextTime - now;
+                if (nextTokenTime.compareAndSet(currentNextTime, now + tokenIntervalMs * permits)) {
                     updateLastAccessTime(now);
-                    return true;
+                    return 0;
                 }
             }
-            return false;
         }
     }
 
     private final ConcurrentHashMap<String, TokenBucket> bucketMap = new ConcurrentHashMap<>();
+    private final PermitWaiters waiters = new PermitWaiters();
     private final ReentrantLock lock = new ReentrantLock();
     private final Condition tokenAvailable = lock.newCondition();
     private final ScheduledExecutorService cleaner;
@@ -179,26 +189,82 @@ public class TokenBucketRateLimiter implements AutoCloseable {
         if (waitTime == null || waitTime.isNegative() || waitTime.toMillis() <= 0) {
             return tryAcquire(key, ratePerSecond);
         }
-        // 计算等待截止时间和休眠间隔
-        long maxWaitMs = waitTime.toMillis();
-        long deadline = System.currentTimeMillis() + maxWaitMs;
-        long sleepMs = Math.min(10, maxWaitMs); // 最大休眠10ms
-        // 轮询等待令牌
-        while (System.currentTimeMillis() < deadline) {
-            // 尝试获取令牌
-            if (tryAcquire(key, ratePerSecond)) return true;
-            // 计算剩余等待时间
-            long remainingMs = deadline - System.currentTimeMillis();
-            if (remainingMs <= 0) break; // 超时退出
-            // 短暂休眠避免过度轮询
-            try {
-                Thread.sleep(Math.min(sleepMs, remainingMs));
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return false;
-            }
+        var future = tryAcquireAsync(key, ratePerSecond, waitTime);
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
         }
-        return false; // 超时返回失败
+    }
+
+    /**
+     * 异步获取令牌，等待期间不占用线程，令牌可用时由共用定时器完成
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     * @param key 限流标识
+     * @param ratePerSecond 时间窗口内最大请求数
+     * @return 获取到令牌时完成
+     */
+    public CompletableFuture<Void> acquireAsync(String key, int ratePerSecond) {
+        return acquireAsync(key, ratePerSecond, 1);
+    }
+
+    /**
+     * 异步获取多个令牌，等待期间不占用线程，同一key的等待者按先后顺序获取
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     * @param key 限流标识
+     * @param ratePerSecond 时间窗口内最大请求数
+     * @param permits 需要的令牌数
+     * @return 获取到令牌时完成
+     */
+    public CompletableFuture<Void> acquireAsync(String key, int ratePerSecond, int permits) {
+        if (!validateRequest(key, ratePerSecond)) return CompletableFuture.failedFuture(new IllegalStateException("限流器已关闭"));
+        if (permits <= 0) throw new IllegalArgumentException("令牌数必须大于0");
+        var future = waiters.acquire(key, permits, Long.MAX_VALUE, attempt(key, ratePerSecond));
+        CompletableFuture<Void> result = future.thenCompose(acquired -> acquired ? CompletableFuture.completedFuture(null) : CompletableFuture.failedFuture(new IllegalStateException("限流器已关闭")));
+        // 取消时同步取消内部等待
+        result.whenComplete((_, _) -> {
+            if (result.isCancelled()) future.cancel(false);
+        });
+        return result;
+    }
+
+    /**
+     * 支持等待超时的异步令牌获取，等待期间不占用线程
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     * @param key 限流标识
+     * @param ratePerSecond 时间窗口内最大请求数
+     * @param waitTime 等待超时时间
+     * @return true=获取成功，false=获取失败或超时
+     */
+    public CompletableFuture<Boolean> tryAcquireAsync(String key, int ratePerSecond, Duration waitTime) {
+        return tryAcquireAsync(key, ratePerSecond, 1, waitTime);
+    }
+
+    /**
+     * 支持等待超时的异步获取多个令牌，等待期间不占用线程，同一key的等待者按先后顺序获取
+     * <p>取消返回的{@link CompletableFuture}即可放弃等待</p>
+     * @param key 限流标识
+     * @param ratePerSecond 时间窗口内最大请求数
+     * @param permits 需要的令牌数
+     * @param waitTime 等待超时时间
+     * @return true=获取成功，false=获取失败或超时
+     */
+    public CompletableFuture<Boolean> tryAcquireAsync(String key, int ratePerSecond, int permits, Duration waitTime) {
+        if (!validateRequest(key, ratePerSecond)) return CompletableFuture.completedFuture(false);
+        if (permits <= 0) throw new IllegalArgumentException("令牌数必须大于0");
+        long deadline = waitTime == null || waitTime.isNegative() ? System.currentTimeMillis() : System.currentTimeMillis() + waitTime.toMillis();
+        return waiters.acquire(key, permits, deadline, attempt(key, ratePerSecond));
+    }
+
+    /**
+     * 排到队首时的获取尝试，每次都重新获取令牌桶，等待期间令牌桶被清理时使用新的令牌桶
+     */
+    private PermitWaiters.Attempt attempt(String key, int ratePerSecond) {
+        return permits -> isShutdown ? -1 : getOrCreateBucket(key, ratePerSecond).tryTakeTokens(permits);
     }
 
     /**
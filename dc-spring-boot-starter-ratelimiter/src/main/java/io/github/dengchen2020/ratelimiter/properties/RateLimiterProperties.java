@@ -2,6 +2,8 @@ package io.github.dengchen2020.ratelimiter.properties;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+
 /**
  * 限流属性配置
  * @author xiaochen
@@ -20,6 +22,16 @@ public class RateLimiterProperties {
      */
     private String errorMsg = "请求过于频繁，请稍后再试";
 
+    /**
+     * 分布式限流租约模式配置
+     */
+    private Lease lease = new Lease();
+
+    /**
+     * 分布式限流本地兜底配置
+     */
+    private Fallback fallback = new Fallback();
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -35,4 +47,117 @@ public class RateLimiterProperties {
     public void setErrorMsg(String errorMsg) {
         this.errorMsg = errorMsg;
     }
+
+    public Lease getLease() {
+        return lease;
+    }
+
+    public void setLease(Lease lease) {
+        this.lease = lease;
+    }
+
+    public Fallback getFallback() {
+        return fallback;
+    }
+
+    public void setFallback(Fallback fallback) {
+        this.fallback = fallback;
+    }
+
+    public static class Lease {
+
+        /**
+         * 是否开启租约模式，开启后每个节点从Redis批量预留许可在本地消耗，大幅减少Redis访问，代价是限流精度存在有限误差
+         */
+        private boolean enabled = false;
+
+        /**
+         * 每次租约占限制次数的比例，取值(0, 1]
+         */
+        private double ratio = 0.1;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(double ratio) {
+            this.ratio = ratio;
+        }
+    }
+
+    public static class Fallback {
+
+        /**
+         * 是否开启本地兜底，开启后Redis调用变慢或出错达到熔断条件时，按"限制次数 / 存活节点数"在本地近似限流
+         */
+        private boolean enabled = false;
+
+        /**
+         * Redis调用的延迟预算，超过视为失败
+         */
+        private Duration latencyBudget = Duration.ofMillis(100);
+
+        /**
+         * Redis调用超时时间，超时的调用被取消并视为失败，本次请求改用本地限流
+         */
+        private Duration timeout = Duration.ofMillis(200);
+
+        /**
+         * 触发熔断的失败率阈值（百分比），取值(0, 100]
+         */
+        private int failureRateThreshold = 50;
+
+        /**
+         * 熔断时长，结束后放行一个探测请求，成功则恢复使用Redis限流
+         */
+        private Duration openDuration = Duration.ofSeconds(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getLatencyBudget() {
+            return latencyBudget;
+        }
+
+        public void setLatencyBudget(Duration latencyBudget) {
+            this.latencyBudget = latencyBudget;
+        }
+
+        public Duration getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(Duration timeout) {
+            this.timeout = timeout;
+        }
+
+        public int getFailureRateThreshold() {
+            return failureRateThreshold;
+        }
+
+        public void setFailureRateThreshold(int failureRateThreshold) {
+            this.failureRateThreshold = failureRateThreshold;
+        }
+
+        public Duration getOpenDuration() {
+            return openDuration;
+        }
+
+        public void setOpenDuration(Duration openDuration) {
+            this.openDuration = openDuration;
+        }
+    }
 }
@@ -0,0 +1,353 @@
+package io.github.dengchen2020.ratelimiter.redis;
+
+import io.github.dengchen2020.ratelimiter.BulkheadPermit;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于Redis实现的分布式舱壁，限制每个key在所有节点同时执行的数量
+ * <p>每个名额是有序集合中的一个成员，分数为租约到期时间，持有期间每1/3租约续期一次，节点宕机未释放的名额在租约到期后自动失效；
+ * 占用和释放各一次往返</p>
+ * <p>排队在本地进行，单个节点的排队数不超过maxWaiting：名额已满时释放会通过Redis发布订阅通知所有节点，
+ * 排队的线程收到通知后再尝试占用，同时每隔一段时间主动重试一次，避免通知丢失时一直等到超时。
+ * 未提供{@link RedisMessageListenerContainer}时不排队，已满时直接失败</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class RedisBulkhead implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisBulkhead.class);
+
+    static final String BULKHEAD_PREFIX = "dc:bulkhead:";
+
+    /**
+     * 名额释放通知的频道，消息内容为舱壁的Redis Key
+     */
+    static final String RELEASE_CHANNEL = "dc:bulkhead:release";
+
+    /**
+     * 排队时未收到通知的最长等待时间（毫秒），超过后主动重试一次
+     */
+    private static final long RECHECK_MILLIS = 500L;
+
+    private static final RedisScript<Long> acquireScript = new DefaultRedisScript<>(
+            """
+                    local time = redis.call("TIME")
+                    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+                    redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", now)
+                    if redis.call("ZCARD", KEYS[1]) >= tonumber(ARGV[1]) then
+                        return 0
+                    end
+                    local lease = tonumber(ARGV[3])
+                    redis.call("ZADD", KEYS[1], now + lease, ARGV[2])
+                    if redis.call("PTTL", KEYS[1]) < lease then
+                        redis.call("PEXPIRE", KEYS[1], lease)
+                    end
+                    return 1
+                    """,
+            Long.class
+    );
+
+    /**
+     * 续期名额，名额已过期被清理时返回0
+     */
+    private static final RedisScript<Long> renewScript = new DefaultRedisScript<>(
+            """
+                    local time = redis.call("TIME")
+                    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+                    local lease = tonumber(ARGV[2])
+                    if not redis.call("ZSCORE", KEYS[1], ARGV[1]) then
+                        return 0
+                    end
+                    redis.call("ZADD", KEYS[1], "XX", now + lease, ARGV[1])
+                    if redis.call("PTTL", KEYS[1]) < lease then
+                        redis.call("PEXPIRE", KEYS[1], lease)
+                    end
+                    return 1
+                    """,
+            Long.class
+    );
+
+    /**
+     * 释放名额，释放前名额已满时通知各节点排队的线程
+     */
+    private static final RedisScript<Long> releaseScript = new DefaultRedisScript<>(
+            """
+                    if redis.call("ZREM", KEYS[1], ARGV[1]) == 0 then
+                        return 0
+                    end
+                    if redis.call("ZCARD", KEYS[1]) + 1 >= tonumber(ARGV[2]) then
+                        redis.call("PUBLISH", ARGV[3], KEYS[1])
+                    end
+                    return 1
+                    """,
+            Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+
+    private final @Nullable RedisMessageListenerContainer listenerContainer;
+
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // 本节点每个Redis Key的排队线程
+    private final Map<String, Waiters> waiters = new ConcurrentHashMap<>();
+
+    private final MessageListener releaseListener = this::onRelease;
+
+    // 续期线程，首次占用名额时创建
+    private volatile @Nullable ScheduledThreadPoolExecutor renewer;
+
+    private volatile boolean subscribed;
+
+    private volatile boolean closed;
+
+    /**
+     * 分布式舱壁实例化，不排队
+     * @param redisTemplate {@link StringRedisTemplate}
+     */
+    public RedisBulkhead(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, null);
+    }
+
+    /**
+     * 分布式舱壁实例化
+     * @param redisTemplate {@link StringRedisTemplate}
+     * @param listenerContainer 用于订阅名额释放通知，为null时不排队
+     */
+    public RedisBulkhead(StringRedisTemplate redisTemplate, @Nullable RedisMessageListenerContainer listenerContainer) {
+        this.redisTemplate = redisTemplate;
+        this.listenerContainer = listenerContainer;
+    }
+
+    /**
+     * 尝试占用一个名额，不排队
+     *
+     * @param key 舱壁标识（如租户ID）
+     * @param maxConcurrent 最大同时执行数
+     * @param leaseTime 名额租约时长，持有期间自动续期
+     * @return 名额，为null表示已满
+     */
+    public @Nullable BulkheadPermit tryAcquire(String key, int maxConcurrent, Duration leaseTime) {
+        return tryAcquireRedis(BULKHEAD_PREFIX + key, maxConcurrent, Math.max(leaseTime.toMillis(), 1L));
+    }
+
+    /**
+     * 尝试占用一个名额，已满时在本地排队等待其他请求释放
+     *
+     * @param key 舱壁标识（如租户ID）
+     * @param maxConcurrent 最大同时执行数
+     * @param maxWaiting 本节点最大排队数，0表示不排队
+     * @param waitTime 排队等待时长
+     * @param leaseTime 名额租约时长，持有期间自动续期
+     * @return 名额，为null表示已满且排队已满或等待超时
+     */
+    public @Nullable BulkheadPermit tryAcquire(String key, int maxConcurrent, int maxWaiting, Duration waitTime, Duration leaseTime) {
+        String redisKey = BULKHEAD_PREFIX + key;
+        long leaseMillis = Math.max(leaseTime.toMillis(), 1L);
+        var permit = tryAcquireRedis(redisKey, maxConcurrent, leaseMillis);
+        if (permit != null || maxConcurrent <= 0 || maxWaiting <= 0 || waitTime.isZero() || waitTime.isNegative() || listenerContainer == null) return permit;
+        if (!subscribed) subscribe();
+        var queue = enqueue(redisKey, maxWaiting);
+        if (queue == null) return null;
+        try {
+            long deadline = System.nanoTime() + waitTime.toNanos();
+            while (true) {
+                // 先记录通知次数再尝试占用，占用失败后只有在此期间没有收到通知时才等待，避免错过通知
+                long generation = queue.generation;
+                permit = tryAcquireRedis(redisKey, maxConcurrent, leaseMillis);
+                if (permit != null) return permit;
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) return null;
+                if (!queue.await(generation, Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(RECHECK_MILLIS)))) return null;
+            }
+        } finally {
+            dequeue(redisKey);
+        }
+    }
+
+    private @Nullable BulkheadPermit tryAcquireRedis(String redisKey, int maxConcurrent, long leaseMillis) {
+        if (maxConcurrent <= 0) return null;
+        String member = nodeId + ":" + sequence.incrementAndGet();
+        Long acquired = redisTemplate.execute(acquireScript, List.of(redisKey),
+                String.valueOf(maxConcurrent), member, String.valueOf(leaseMillis));
+        if (acquired == null || acquired == 0) return null;
+        ScheduledFuture<?> renewal = scheduleRenewal(redisKey, member, leaseMillis);
+        return () -> {
+            if (renewal != null) renewal.cancel(false);
+            release(redisKey, member, maxConcurrent);
+        };
+    }
+
+    private @Nullable ScheduledFuture<?> scheduleRenewal(String redisKey, String member, long leaseMillis) {
+        var executor = renewer;
+        if (executor == null) executor = startRenewer();
+        long period = Math.max(leaseMillis / 3, 1L);
+        try {
+            return executor.scheduleAtFixedRate(() -> renew(redisKey, member, leaseMillis), period, period, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // 已关闭，名额在租约到期后自动失效
+            if (log.isDebugEnabled()) log.debug("舱壁名额续期任务提交失败：{}", e.toString());
+            return null;
+        }
+    }
+
+    private synchronized ScheduledThreadPoolExecutor startRenewer() {
+        var executor = renewer;
+        if (executor != null) return executor;
+        executor = new ScheduledThreadPoolExecutor(1, Thread.ofVirtual().name("redis-bulkhead-renewer").factory());
+        // 名额释放时取消的续期任务立即从队列移除
+        executor.setRemoveOnCancelPolicy(true);
+        if (closed) {
+            executor.shutdown();
+            return executor;
+        }
+        renewer = executor;
+        return executor;
+    }
+
+    private void renew(String redisKey, String member, long leaseMillis) {
+        try {
+            Long renewed = redisTemplate.execute(renewScript, List.of(redisKey), member, String.valueOf(leaseMillis));
+            if (renewed == null || renewed == 0) log.warn("舱壁名额续期失败，名额已过期：{}", redisKey);
+        } catch (Exception e) {
+            log.warn("舱壁名额续期异常，将在下次续期时重试：{}，异常信息：{}", redisKey, e.toString());
+        }
+    }
+
+    private void release(String redisKey, String member, int maxConcurrent) {
+        try {
+            redisTemplate.execute(releaseScript, List.of(redisKey), member, String.valueOf(maxConcurrent), RELEASE_CHANNEL);
+        } catch (Exception e) {
+            // 释放失败时名额在租约到期后自动失效
+            log.warn("舱壁名额释放失败，将在租约到期后自动释放，key：{}，异常信息：{}", redisKey, e.toString());
+        }
+        // 本节点的排队线程无需等待通知
+        signal(redisKey);
+    }
+
+    private synchronized void subscribe() {
+        if (subscribed || closed || listenerContainer == null) return;
+        listenerContainer.addMessageListener(releaseListener, ChannelTopic.of(RELEASE_CHANNEL));
+        subscribed = true;
+    }
+
+    private void onRelease(Message message, byte @Nullable [] pattern) {
+        signal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void signal(String redisKey) {
+        var queue = waiters.get(redisKey);
+        if (queue != null) queue.signalAll();
+    }
+
+    /**
+     * 加入排队，排队数在同一个key的compute中增减，与移除互斥
+     * @return 排队队列，为null表示排队已满
+     */
+    private @Nullable Waiters enqueue(String redisKey, int maxWaiting) {
+        boolean[] admitted = new boolean[1];
+        var queue = waiters.compute(redisKey, (_, w) -> {
+            if (w == null) w = new Waiters();
+            if (w.count < maxWaiting) {
+                w.count++;
+                admitted[0] = true;
+            }
+            return w;
+        });
+        return admitted[0] ? queue : null;
+    }
+
+    private void dequeue(String redisKey) {
+        waiters.computeIfPresent(redisKey, (_, w) -> --w.count <= 0 ? null : w);
+    }
+
+    /**
+     * 当前所有节点正在执行的数量（包含已过期未清理的名额）
+     */
+    public long inFlight(String key) {
+        Long count = redisTemplate.opsForZSet().zCard(BULKHEAD_PREFIX + key);
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 关闭舱壁：停止续期并取消订阅，未释放的名额在租约到期后自动失效
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        var executor = renewer;
+        if (executor != null) executor.shutdownNow();
+        if (subscribed && listenerContainer != null) {
+            listenerContainer.removeMessageListener(releaseListener, ChannelTopic.of(RELEASE_CHANNEL));
+            subscribed = false;
+        }
+        for (var queue : waiters.values()) queue.signalAll();
+    }
+
+    /**
+     * 同一个key的排队线程
+     */
+    private static final class Waiters {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition released = lock.newCondition();
+        // 收到的通知次数
+        private volatile long generation;
+        // 排队数，仅在waiters的compute中修改
+        private int count;
+
+        void signalAll() {
+            lock.lock();
+            try {
+                generation++;
+                released.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 在没有收到新通知时等待
+         * @return false：等待期间被中断
+         */
+        boolean await(long generation, long nanos) {
+            lock.lock();
+            try {
+                if (this.generation != generation) return true;
+                released.awaitNanos(nanos);
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.dengchen2020.ratelimiter.redis;
+
+import org.jspecify.annotations.NullMarked;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis限流熔断器
+ * <p>统计窗口内Redis调用的失败率（异常或耗时超过延迟预算均视为失败），达到阈值后熔断，
+ * 熔断期间调用方应使用本地限流兜底，熔断时长结束后放行一个探测请求，探测成功则恢复</p>
+ * <p>调用前通过{@link #tryAcquire()}获取许可，调用结束后必须以该许可调用{@link #onSuccess(long, long)}或{@link #onError(long)}，
+ * 熔断期间只有持有探测许可的调用结果会被采纳，熔断前发出的调用迟到的结果会被忽略</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class RedisCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    // 统计窗口时长（毫秒）
+    private static final long WINDOW_MILLIS = 10_000L;
+    // 窗口内最少调用次数，少于该次数不计算失败率
+    private static final int MIN_CALLS = 20;
+
+    private final long latencyBudgetNanos;
+    private final int failureRateThreshold;
+    private final long openMillis;
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile long windowStart = System.currentTimeMillis();
+    // 熔断结束时间，0表示未熔断
+    private volatile long openUntil;
+    // 当前探测请求的许可，0表示没有探测请求正在执行
+    private final AtomicLong probe = new AtomicLong();
+    private final AtomicLong probeSequence = new AtomicLong();
+
+    /**
+     * Redis限流熔断器实例化
+     * @param latencyBudget 延迟预算，超过视为失败
+     * @param failureRateThreshold 失败率阈值（百分比），取值(0, 100]
+     * @param openDuration 熔断时长
+     */
+    public RedisCircuitBreaker(Duration latencyBudget, int failureRateThreshold, Duration openDuration) {
+        if (failureRateThreshold <= 0 || failureRateThreshold > 100) throw new IllegalArgumentException("failureRateThreshold必须在(0, 100]范围内，当前值：" + failureRateThreshold);
+        this.latencyBudgetNanos = latencyBudget.toNanos();
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openDuration.toMillis();
+    }
+
+    /**
+     * 获取访问Redis的许可
+     * @return 小于0：已熔断，应使用本地限流兜底；0：正常调用；大于0：探测请求的许可
+     */
+    public long tryAcquire() {
+        long until = openUntil;
+        if (until == 0) return 0;
+        if (System.currentTimeMillis() < until) return -1;
+        // 熔断时长已过，同一时间只放行一个探测请求
+        long permit = probeSequence.incrementAndGet();
+        return probe.compareAndSet(0, permit) ? permit : -1;
+    }
+
+    /**
+     * 记录一次成功调用
+     * @param permit {@link #tryAcquire()}返回的许可
+     * @param elapsedNanos 调用耗时（纳秒）
+     */
+    public void onSuccess(long permit, long elapsedNanos) {
+        record(permit, elapsedNanos > latencyBudgetNanos);
+    }
+
+    /**
+     * 记录一次失败调用（异常或超时）
+     * @param permit {@link #tryAcquire()}返回的许可
+     */
+    public void onError(long permit) {
+        record(permit, true);
+    }
+
+    private void record(long permit, boolean failed) {
+        if (permit < 0) return;
+        long now = System.currentTimeMillis();
+        if (permit > 0) {
+            // 探测请求的结果决定是否恢复，无论结果如何都释放探测许可
+            if (!probe.compareAndSet(permit, 0)) return;
+            if (failed) {
+                openUntil = now + openMillis;
+            } else {
+                resetWindow(now);
+                openUntil = 0;
+                log.info("Redis限流已恢复");
+            }
+            return;
+        }
+        // 熔断期间忽略熔断前发出的调用的结果
+        if (openUntil != 0) return;
+        if (now - windowStart >= WINDOW_MILLIS) resetWindow(now);
+        int callCount = calls.incrementAndGet();
+        int failureCount = failed ? failures.incrementAndGet() : failures.get();
+        if (callCount >= MIN_CALLS && failureCount * 100L >= (long) callCount * failureRateThreshold) {
+            openUntil = now + openMillis;
+            log.warn("Redis限流调用失败率过高（{}/{}），切换为本地限流{}ms", failureCount, callCount, openMillis);
+        }
+    }
+
+    private void resetWindow(long now) {
+        windowStart = now;
+        calls.set(0);
+        failures.set(0);
+    }
+
+    /**
+     * 是否处于熔断状态
+     */
+    public boolean isOpen() {
+        return openUntil != 0;
+    }
+}
@@ -0,0 +1,100 @@
+package io.github.dengchen2020.ratelimiter.redis;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 基于Redis实现的GCRA（通用信元速率算法）分布式限流实现
+ * <p>每个限流标识只保存一个理论到达时间（TAT），一次往返即可完成判断并得到精确的等待时间，时间以Redis服务器时间为准</p>
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class RedisGcraRateLimiter {
+
+    private final StringRedisTemplate redisTemplate;
+
+    static final String RATE_LIMIT_PREFIX = "dc:rate_limit:gcra:";
+
+    /**
+     * 时间单位为微秒，返回值为需要等待的毫秒数，0表示允许请求
+     */
+    private static final RedisScript<Long> gcraScript = new DefaultRedisScript<>(
+            """
+                    local key = KEYS[1]
+                    local emissionInterval = tonumber(ARGV[1])
+                    local burstOffset = tonumber(ARGV[2])
+                    local increment = tonumber(ARGV[3])
+                    local time = redis.call("TIME")
+                    local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+                    local tat = tonumber(redis.call("GET", key))
+                    if not tat or tat < now then
+                        tat = now
+                    end
+                    local newTat = tat + increment
+                    local wait = newTat - burstOffset - now
+                    if wait > 0 then
+                        return math.ceil(wait / 1000)
+                    end
+                    redis.call("SET", key, string.format("%d", newTat), "PX", math.ceil((newTat - now) / 1000))
+                    return 0
+                    """,
+            Long.class
+    );
+
+    /**
+     * 分布式GCRA限流实例化
+     * @param redisTemplate {@link StringRedisTemplate}
+     */
+    public RedisGcraRateLimiter(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 尝试获取一次请求许可，允许的突发数等于limitNum
+     *
+     * @param limitKey 限制标识符
+     * @param limitNum 限制的次数
+     * @param duration 时间窗口
+     * @return 0：允许请求，大于0：被限制，值为距离下次允许请求需等待的毫秒数
+     */
+    public long tryAcquire(String limitKey, int limitNum, Duration duration) {
+        return tryAcquire(limitKey, limitNum, duration, limitNum, 1);
+    }
+
+    /**
+     * 尝试获取请求许可
+     *
+     * @param limitKey 限制标识符
+     * @param limitNum 限制的次数
+     * @param duration 时间窗口
+     * @param burst 允许的突发数，最小为1（即完全平滑）
+     * @param permits 本次需要的许可数
+     * @return 0：允许请求，大于0：被限制，值为距离下次允许请求需等待的毫秒数
+     */
+    public long tryAcquire(String limitKey, int limitNum, Duration duration, int burst, int permits) {
+        if (duration.isZero() || duration.isNegative()) throw new IllegalArgumentException("无效的时间窗口: " + duration);
+        if (limitNum <= 0) return duration.toMillis();
+        if (permits <= 0) throw new IllegalArgumentException("许可数必须大于0");
+        long emissionInterval = Math.max(duration.toNanos() / 1000 / limitNum, 1L);
+        Long wait = redisTemplate.execute(gcraScript, List.of(RATE_LIMIT_PREFIX + limitKey),
+                String.valueOf(emissionInterval), String.valueOf(emissionInterval * Math.max(burst, 1)), String.valueOf(emissionInterval * permits));
+        return wait == null ? 0 : wait;
+    }
+
+    /**
+     * 是否被限制
+     *
+     * @param limitKey 限制标识符
+     * @param limitNum 限制的次数
+     * @param duration 时间窗口
+     * @return true：被限制 false：未被限制
+     */
+    public boolean limit(String limitKey, int limitNum, Duration duration) {
+        return tryAcquire(limitKey, limitNum, duration) > 0;
+    }
+
+}
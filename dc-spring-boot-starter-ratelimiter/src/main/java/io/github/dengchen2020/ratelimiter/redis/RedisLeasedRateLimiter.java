@@ -0,0 +1,284 @@
+package io.github.dengchen2020.ratelimiter.redis;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于Redis实现的租约式分布式限流实现
+ * <p>每个节点一次从Redis预留一批许可（默认为限制次数的10%）在本地消耗，用完再租下一批，全局剩余许可越少租约越小，
+ * 从而将Redis访问次数降低一个数量级，同时误差有上限：任意时刻最多有"节点数 × 租约大小"的许可被其他节点预留</p>
+ * <p>时间窗口按系统时间对齐，临近窗口结束时将未用完的许可归还给Redis供其他节点在本窗口内使用；
+ * 全局许可耗尽后每隔一小段时间重新尝试租约，以便使用其他节点归还的许可</p>
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class RedisLeasedRateLimiter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisLeasedRateLimiter.class);
+
+    private final StringRedisTemplate redisTemplate;
+
+    private static final String RATE_LIMIT_PREFIX = "dc:rate_limit:lease:";
+
+    /**
+     * 全局许可耗尽后重新尝试租约的间隔（毫秒）
+     */
+    private static final long EXHAUSTED_RETRY_MILLIS = 100L;
+
+    /**
+     * 清理过期租约的间隔（毫秒）
+     */
+    private static final long SWEEP_MILLIS = 5000L;
+
+    private static final RedisScript<Long> leaseScript = new DefaultRedisScript<>(
+            """
+                    local key = KEYS[1]
+                    local limitNum = tonumber(ARGV[1])
+                    local used = tonumber(redis.call("GET", key) or "0")
+                    local remaining = limitNum - used
+                    if remaining <= 0 then
+                        return 0
+                    end
+                    local chunk = math.floor(remaining * tonumber(ARGV[2]))
+                    chunk = math.max(1, math.min(chunk, tonumber(ARGV[3])))
+                    redis.call("INCRBY", key, chunk)
+                    redis.call("PEXPIRE", key, ARGV[4])
+                    return chunk
+                    """,
+            Long.class
+    );
+
+    private static final RedisScript<Long> releaseScript = new DefaultRedisScript<>(
+            """
+                    local used = tonumber(redis.call("GET", KEYS[1]) or "0")
+                    if used <= 0 then
+                        return 0
+                    end
+                    return redis.call("DECRBY", KEYS[1], math.min(used, tonumber(ARGV[1])))
+                    """,
+            Long.class
+    );
+
+    private final double leaseRatio;
+
+    private final Map<String, Lease> leases = new ConcurrentHashMap<>();
+
+    // 归还许可与清理租约的线程池，首次使用时创建
+    private volatile @Nullable ScheduledExecutorService scheduler;
+
+    private volatile boolean closed;
+
+    /**
+     * 租约式分布式限流实例化，每次租约为限制次数的10%
+     * @param redisTemplate {@link StringRedisTemplate}
+     */
+    public RedisLeasedRateLimiter(StringRedisTemplate redisTemplate) {
+        this(redisTemplate, 0.1);
+    }
+
+    /**
+     * 租约式分布式限流实例化
+     * @param redisTemplate {@link StringRedisTemplate}
+     * @param leaseRatio 每次租约占限制次数的比例，取值(0, 1]
+     */
+    public RedisLeasedRateLimiter(StringRedisTemplate redisTemplate, double leaseRatio) {
+        if (leaseRatio <= 0 || leaseRatio > 1) throw new IllegalArgumentException("leaseRatio必须在(0, 1]范围内，当前值：" + leaseRatio);
+        this.redisTemplate = redisTemplate;
+        this.leaseRatio = leaseRatio;
+    }
+
+    /**
+     * 是否被限制
+     *
+     * @param limitKey 限制标识符
+     * @param limitNum 限制的次数
+     * @param duration 时间窗口
+     * @return true：被限制 false：未被限制
+     */
+    public boolean limit(String limitKey, int limitNum, Duration duration) {
+        if (limitNum <= 0) return true;
+        long windowMillis = Math.max(duration.toMillis(), 1L);
+        long now = System.currentTimeMillis();
+        long windowId = now / windowMillis;
+        var executor = scheduler;
+        if (executor == null) executor = startScheduler();
+        while (true) {
+            var lease = leases.computeIfAbsent(limitKey, _ -> new Lease());
+            lease.lastAccessTime = now;
+            if (lease.tryTake(windowId)) return false;
+            lease.lock.lock();
+            try {
+                // 租约已被清理，重新获取
+                if (lease.closed) continue;
+                // 双重检查，其他线程可能已完成续租
+                if (lease.tryTake(windowId)) return false;
+                var chunk = lease.chunk;
+                if (chunk.windowId == windowId && now < chunk.exhaustedUntil) return true;
+                String redisKey = redisKey(limitKey, windowId);
+                long windowEnd = (windowId + 1) * windowMillis;
+                int maxChunk = Math.max((int) (limitNum * leaseRatio), 1);
+                Long leased = redisTemplate.execute(leaseScript, List.of(redisKey),
+                        String.valueOf(limitNum), String.valueOf(leaseRatio), String.valueOf(maxChunk), String.valueOf(windowMillis * 2));
+                if (leased == null || leased <= 0) {
+                    lease.chunk = new Chunk(windowId, windowEnd, redisKey, 0, Math.min(now + EXHAUSTED_RETRY_MILLIS, windowEnd));
+                    return true;
+                }
+                // 本次请求消耗一个许可，剩余的留在本地
+                var leasedChunk = new Chunk(windowId, windowEnd, redisKey, leased.intValue() - 1, 0);
+                lease.chunk = leasedChunk;
+                scheduleReturn(executor, leasedChunk, windowMillis, now);
+                return false;
+            } finally {
+                lease.lock.unlock();
+            }
+        }
+    }
+
+    private static String redisKey(String limitKey, long windowId) {
+        return RATE_LIMIT_PREFIX + limitKey + ":" + windowId;
+    }
+
+    /**
+     * 在窗口结束前（窗口的最后10%）归还租约中未使用的许可，窗口即将结束时不再归还
+     */
+    private void scheduleReturn(ScheduledExecutorService executor, Chunk chunk, long windowMillis, long now) {
+        if (chunk.remaining.get() <= 0) return;
+        long delay = chunk.windowEnd - Math.max(windowMillis / 10, 1L) - now;
+        if (delay <= 0) return;
+        try {
+            executor.schedule(() -> returnUnused(chunk), delay, TimeUnit.MILLISECONDS);
+        } catch (RuntimeException e) {
+            // 已关闭，关闭时会归还所有许可
+            if (log.isDebugEnabled()) log.debug("限流租约归还任务提交失败：{}", e.toString());
+        }
+    }
+
+    private synchronized ScheduledExecutorService startScheduler() {
+        var executor = scheduler;
+        if (executor != null) return executor;
+        executor = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("leased-rate-limiter-cleaner").factory());
+        if (closed) {
+            executor.shutdown();
+            return executor;
+        }
+        executor.scheduleWithFixedDelay(this::evictExpiredLeases, SWEEP_MILLIS, SWEEP_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler = executor;
+        return executor;
+    }
+
+    /**
+     * 归还未使用的许可，本地剩余许可清零后再访问Redis的线程会重新租约
+     */
+    private void returnUnused(Chunk chunk) {
+        int unused = chunk.remaining.getAndSet(0);
+        if (unused <= 0 || System.currentTimeMillis() >= chunk.windowEnd) return;
+        try {
+            redisTemplate.execute(releaseScript, List.of(chunk.redisKey), String.valueOf(unused));
+        } catch (Exception e) {
+            log.warn("归还限流租约失败，key：{}，数量：{}，异常信息：{}", chunk.redisKey, unused, e.toString());
+        }
+    }
+
+    /**
+     * 清理窗口已结束且空闲的租约，在租约的锁内标记为已关闭后再移除，正在使用该租约的线程发现后重新获取
+     */
+    private void evictExpiredLeases() {
+        if (leases.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        for (var entry : leases.entrySet()) {
+            var lease = entry.getValue();
+            if (!lease.isExpired(now)) continue;
+            if (!lease.lock.tryLock()) continue;
+            try {
+                if (!lease.isExpired(System.currentTimeMillis())) continue;
+                lease.closed = true;
+                lease.chunk.remaining.set(0);
+            } finally {
+                lease.lock.unlock();
+            }
+            leases.remove(entry.getKey(), lease);
+        }
+    }
+
+    /**
+     * 关闭限流器：归还所有未使用的许可
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            var executor = scheduler;
+            if (executor != null) executor.shutdownNow();
+        }
+        for (var lease : leases.values()) {
+            lease.lock.lock();
+            try {
+                lease.closed = true;
+                returnUnused(lease.chunk);
+            } finally {
+                lease.lock.unlock();
+            }
+        }
+        leases.clear();
+    }
+
+    /**
+     * 本地租约
+     */
+    private static final class Lease {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile Chunk chunk = Chunk.EMPTY;
+        private volatile long lastAccessTime;
+        // 已被清理，仅在持有lock时修改
+        private volatile boolean closed;
+
+        boolean tryTake(long windowId) {
+            var current = chunk;
+            if (current.windowId != windowId) return false;
+            int remaining;
+            do {
+                remaining = current.remaining.get();
+                if (remaining <= 0) return false;
+            } while (!current.remaining.compareAndSet(remaining, remaining - 1));
+            return true;
+        }
+
+        boolean isExpired(long now) {
+            return chunk.windowEnd <= now && now - lastAccessTime >= SWEEP_MILLIS;
+        }
+    }
+
+    /**
+     * 某个窗口内租到的一批许可
+     *
+     * @param windowId 窗口编号
+     * @param windowEnd 窗口结束时间
+     * @param redisKey 对应的Redis Key
+     * @param remaining 本地剩余许可数
+     * @param exhaustedUntil 全局许可已耗尽时，在该时间之前不再访问Redis，0表示未耗尽
+     */
+    private record Chunk(long windowId, long windowEnd, String redisKey, AtomicInteger remaining, long exhaustedUntil) {
+
+        static final Chunk EMPTY = new Chunk(-1, 0, "", 0, 0);
+
+        Chunk(long windowId, long windowEnd, String redisKey, int remaining, long exhaustedUntil) {
+            this(windowId, windowEnd, redisKey, new AtomicInteger(remaining), exhaustedUntil);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.dengchen2020.ratelimiter.redis;
+
+import io.github.dengchen2020.ratelimiter.MultiRateLimitResult;
+import io.github.dengchen2020.ratelimiter.annotation.RateLimitAlgorithm;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于Redis实现的多维度分布式限流实现
+ * <p>一个Lua脚本内先判断所有维度，全部允许后才统一计数，任一维度被限流则都不计数，一次往返完成</p>
+ * <p>固定窗口维度与{@link RedisRateLimiter}使用相同的Key前缀，GCRA维度与{@link RedisGcraRateLimiter}使用相同的Key前缀。
+ * Redis集群模式下脚本内的所有Key需位于同一slot，注解方式的限流标识在集群模式下统一以{@code {dc:ratelimit}}作为hash tag，满足该要求</p>
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class RedisMultiRateLimiter {
+
+    private final StringRedisTemplate redisTemplate;
+
+    /**
+     * 每个维度3个参数：类型（w：固定窗口，g：GCRA）、参数a、参数b
+     * <p>固定窗口：a为限制次数，b为时间窗口毫秒数；GCRA：a为发射间隔微秒数，b为突发容量微秒数</p>
+     * <p>返回值为{需要等待的毫秒数, 需等待最久的维度下标（从1开始）}，{0, 0}表示允许请求</p>
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> multiScript = new DefaultRedisScript<>(
+            """
+                    local time = redis.call("TIME")
+                    local nowUs = tonumber(time[1]) * 1000000 + tonumber(time[2])
+                    local newTats = {}
+                    local maxWait = 0
+                    local rejected = 0
+                    for i = 1, #KEYS do
+                        local kind = ARGV[i * 3 - 2]
+                        local a = tonumber(ARGV[i * 3 - 1])
+                        local b = tonumber(ARGV[i * 3])
+                        if kind == "g" then
+                            local tat = tonumber(redis.call("GET", KEYS[i]))
+                            if not tat or tat < nowUs then
+                                tat = nowUs
+                            end
+                            local newTat = tat + a
+                            newTats[i] = newTat
+                            local wait = math.ceil((newTat - b - nowUs) / 1000)
+                            if wait > maxWait then
+                                maxWait = wait
+                                rejected = i
+                            end
+                        else
+                            local count = tonumber(redis.call("GET", KEYS[i]) or "0")
+                            if count >= a then
+                                local ttl = redis.call("PTTL", KEYS[i])
+                                if ttl <= 0 then
+                                    ttl = b
+                                end
+                                if ttl > maxWait then
+                                    maxWait = ttl
+                                    rejected = i
+                                end
+                            end
+                        end
+                    end
+                    if maxWait > 0 then
+                        return {maxWait, rejected}
+                    end
+                    for i = 1, #KEYS do
+                        if ARGV[i * 3 - 2] == "g" then
+                            redis.call("SET", KEYS[i], string.format("%d", newTats[i]), "PX", math.ceil((newTats[i] - nowUs) / 1000))
+                        elseif redis.call("INCR", KEYS[i]) == 1 then
+                            redis.call("PEXPIRE", KEYS[i], ARGV[i * 3])
+                        end
+                    end
+                    return {0, 0}
+                    """,
+            List.class
+    );
+
+    /**
+     * 多维度分布式限流实例化
+     * @param redisTemplate {@link StringRedisTemplate}
+     */
+    public RedisMultiRateLimiter(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 尝试同时获取所有维度的请求许可
+     *
+     * @param dimensions 限流维度
+     * @return 限流结果，被限制时包含需等待最久的维度下标
+     */
+    public MultiRateLimitResult tryAcquire(List<Dimension> dimensions) {
+        if (dimensions.isEmpty()) return MultiRateLimitResult.ALLOWED;
+        var keys = new ArrayList<String>(dimensions.size());
+        var args = new String[dimensions.size() * 3];
+        for (int i = 0; i < dimensions.size(); i++) {
+            var dimension = dimensions.get(i);
+            if (dimension.algorithm() == RateLimitAlgorithm.gcra) {
+                long emissionInterval = dimension.limitNum() <= 0 ? dimension.duration().toNanos() / 1000 : Math.max(dimension.duration().toNanos() / 1000 / dimension.limitNum(), 1L);
+                keys.add(RedisGcraRateLimiter.RATE_LIMIT_PREFIX + dimension.limitKey());
+                args[i * 3] = "g";
+                args[i * 3 + 1] = String.valueOf(emissionInterval);
+                args[i * 3 + 2] = String.valueOf(dimension.limitNum() <= 0 ? 0 : emissionInterval * dimension.limitNum());
+            } else {
+                keys.add(RedisRateLimiter.RATE_LIMIT_PREFIX + dimension.limitKey());
+                args[i * 3] = "w";
+                args[i * 3 + 1] = String.valueOf(dimension.limitNum());
+                args[i * 3 + 2] = String.valueOf(Math.max(dimension.duration().toMillis(), 1L));
+            }
+        }
+        List<?> result = redisTemplate.execute(multiScript, keys, (Object[]) args);
+        if (result == null) return MultiRateLimitResult.ALLOWED;
+        long wait = ((Number) result.get(0)).longValue();
+        if (wait <= 0) return MultiRateLimitResult.ALLOWED;
+        return new MultiRateLimitResult(wait, ((Number) result.get(1)).intValue() - 1);
+    }
+
+    /**
+     * 限流维度
+     *
+     * @param limitKey 限制标识符
+     * @param limitNum 限制的次数
+     * @param duration 时间窗口
+     * @param algorithm 限流算法
+     */
+    public record Dimension(String limitKey, int limitNum, Duration duration, RateLimitAlgorithm algorithm) {}
+
+}
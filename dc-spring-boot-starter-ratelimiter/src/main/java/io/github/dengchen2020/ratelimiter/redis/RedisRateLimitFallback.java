@@ -0,0 +1,141 @@
+package io.github.dengchen2020.ratelimiter.redis;
+
+import io.github.dengchen2020.core.redis.RedisNodeRegistry;
+import io.github.dengchen2020.ratelimiter.MultiRateLimitResult;
+import io.github.dengchen2020.ratelimiter.local.GcraRateLimiter;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Redis限流本地兜底策略
+ * <p>Redis调用变慢或出错达到熔断条件后，改为在本地按"全局限制次数 / 存活节点数"近似限流，Redis恢复后自动切回</p>
+ * <p>Redis调用在虚拟线程中执行，超过超时时间未返回的调用被取消并视为失败，本次请求立即改用本地限流</p>
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class RedisRateLimitFallback implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisRateLimitFallback.class);
+
+    private final RedisCircuitBreaker circuitBreaker;
+
+    private final @Nullable RedisNodeRegistry nodeRegistry;
+
+    private final long timeoutNanos;
+
+    private final GcraRateLimiter localRateLimiter = new GcraRateLimiter();
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("redis-rate-limit-", 0).factory());
+
+    /**
+     * Redis限流本地兜底策略实例化
+     * @param circuitBreaker 熔断器
+     * @param nodeRegistry 存活节点注册表，为null时按单节点计算本地限制次数
+     * @param timeout Redis调用超时时间
+     */
+    public RedisRateLimitFallback(RedisCircuitBreaker circuitBreaker, @Nullable RedisNodeRegistry nodeRegistry, Duration timeout) {
+        this.circuitBreaker = circuitBreaker;
+        this.nodeRegistry = nodeRegistry;
+        this.timeoutNanos = timeout.toNanos();
+        // 兜底只在Redis出问题时使用，此时已无法心跳，需提前开始心跳得到节点数
+        if (nodeRegistry != null) nodeRegistry.start();
+    }
+
+    /**
+     * 执行Redis限流，熔断、调用超时或异常时执行本地限流
+     * @param redisCall Redis限流
+     * @param localCall 本地限流
+     * @return 限流结果，单维度限流为需等待的毫秒数，多维度限流为{@link MultiRateLimitResult}
+     */
+    public <T> T execute(Supplier<T> redisCall, Supplier<T> localCall) {
+        long permit = circuitBreaker.tryAcquire();
+        if (permit < 0) return localCall.get();
+        long start = System.nanoTime();
+        boolean success = false;
+        Future<T> future = null;
+        try {
+            future = executor.submit(redisCall::get);
+            T result = future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            success = true;
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            if (log.isDebugEnabled()) log.debug("Redis限流调用超时，使用本地限流");
+        } catch (ExecutionException e) {
+            if (log.isDebugEnabled()) log.debug("Redis限流调用失败，使用本地限流：{}", e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (future != null) future.cancel(true);
+        } catch (RuntimeException e) {
+            // 已关闭，无法提交
+            if (log.isDebugEnabled()) log.debug("Redis限流调用提交失败，使用本地限流：{}", e.toString());
+        } finally {
+            // 无论以何种方式结束都要记录结果，探测请求的许可随之释放
+            if (success) {
+                circuitBreaker.onSuccess(permit, System.nanoTime() - start);
+            } else {
+                circuitBreaker.onError(permit);
+            }
+        }
+        return localCall.get();
+    }
+
+    /**
+     * 本地近似限流，限制次数为全局限制次数除以存活节点数（向上取整）
+     *
+     * @param limitKey 限制标识符
+     * @param limitNum 全局限制的次数
+     * @param duration 时间窗口
+     * @return 0：允许请求，大于0：被限流，值为距离下次允许请求需等待的毫秒数
+     */
+    public long tryAcquireLocal(String limitKey, int limitNum, Duration duration) {
+        return localRateLimiter.tryAcquire(limitKey, localLimit(limitNum), duration);
+    }
+
+    /**
+     * 多维度本地近似限流，被限流时归还前面维度已消耗的许可
+     *
+     * @param dimensions 限流维度
+     * @return 限流结果，被限流时包含拒绝请求的维度下标
+     */
+    public MultiRateLimitResult tryAcquireLocal(List<RedisMultiRateLimiter.Dimension> dimensions) {
+        for (int i = 0; i < dimensions.size(); i++) {
+            var dimension = dimensions.get(i);
+            long retryAfterMillis = tryAcquireLocal(dimension.limitKey(), dimension.limitNum(), dimension.duration());
+            if (retryAfterMillis > 0) {
+                for (int j = 0; j < i; j++) {
+                    var acquired = dimensions.get(j);
+                    localRateLimiter.rollback(acquired.limitKey(), localLimit(acquired.limitNum()), acquired.duration());
+                }
+                return new MultiRateLimitResult(retryAfterMillis, i);
+            }
+        }
+        return MultiRateLimitResult.ALLOWED;
+    }
+
+    private int localLimit(int limitNum) {
+        if (limitNum <= 0) return limitNum;
+        int nodes = nodeRegistry == null ? 1 : nodeRegistry.current().count();
+        return Math.max(Math.ceilDiv(limitNum, nodes), 1);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        localRateLimiter.close();
+    }
+}
@@ -28,7 +28,7 @@ public class RedisRateLimiter {
     private final StringRedisTemplate redisTemplate;
     private final boolean versionAbove8_8_0;
 
-    private static final String RATE_LIMIT_PREFIX = "dc:rate_limit:";
+    static final String RATE_LIMIT_PREFIX = "dc:rate_limit:";
 
     private static final String INCREX = "INCREX";
     private static final byte[] UBOUND = "UBOUND".getBytes(StandardCharsets.UTF_8);
@@ -1,10 +1,18 @@
 package io.github.dengchen2020.ratelimiter.redis;
 
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
+import io.github.dengchen2020.core.redis.RedisNodeRegistry;
 import io.github.dengchen2020.ratelimiter.properties.RateLimiterProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.util.CollectionUtils;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
@@ -22,14 +30,50 @@ public final class RedisRateLimiterAutoConfiguration implements WebMvcConfigurer
 
     private final StringRedisTemplate redisTemplate;
 
-    RedisRateLimiterAutoConfiguration(RateLimiterProperties properties, StringRedisTemplate stringRedisTemplate) {
+    private final ObjectProvider<RedisRateLimiterInterceptor> redisRateLimiterInterceptor;
+
+    private final ObjectProvider<RedisNodeRegistry> redisNodeRegistry;
+
+    private final ObjectProvider<RedisMessageListenerContainer> redisMessageListenerContainer;
+
+    private final ObjectProvider<HandlerMethodMetadataRegistry> handlerMethodMetadataRegistry;
+
+    private final ObjectProvider<RedisProperties> redisProperties;
+
+    RedisRateLimiterAutoConfiguration(RateLimiterProperties properties, StringRedisTemplate stringRedisTemplate, ObjectProvider<RedisRateLimiterInterceptor> redisRateLimiterInterceptor,
+                                      ObjectProvider<RedisNodeRegistry> redisNodeRegistry, ObjectProvider<RedisMessageListenerContainer> redisMessageListenerContainer,
+                                      ObjectProvider<HandlerMethodMetadataRegistry> handlerMethodMetadataRegistry, ObjectProvider<RedisProperties> redisProperties) {
         this.properties = properties;
         this.redisTemplate = stringRedisTemplate;
+        this.redisRateLimiterInterceptor = redisRateLimiterInterceptor;
+        this.redisNodeRegistry = redisNodeRegistry;
+        this.redisMessageListenerContainer = redisMessageListenerContainer;
+        this.handlerMethodMetadataRegistry = handlerMethodMetadataRegistry;
+        this.redisProperties = redisProperties;
+    }
+
+    /**
+     * 注册为Bean，应用关闭时归还租约中未使用的许可并停止后台线程
+     */
+    @ConditionalOnProperty(value = "dc.ratelimiter.enabled", havingValue = "true", matchIfMissing = true)
+    @Bean
+    RedisRateLimiterInterceptor redisRateLimiterInterceptor() {
+        var lease = properties.getLease();
+        var redisLeasedRateLimiter = lease.isEnabled() ? new RedisLeasedRateLimiter(redisTemplate, lease.getRatio()) : null;
+        var fallback = properties.getFallback();
+        var redisRateLimitFallback = fallback.isEnabled() ? new RedisRateLimitFallback(new RedisCircuitBreaker(fallback.getLatencyBudget(), fallback.getFailureRateThreshold(), fallback.getOpenDuration()), redisNodeRegistry.getIfAvailable(), fallback.getTimeout()) : null;
+        return new RedisRateLimiterInterceptor(new RedisRateLimiter(redisTemplate), new RedisGcraRateLimiter(redisTemplate), redisLeasedRateLimiter, new RedisMultiRateLimiter(redisTemplate), redisRateLimitFallback, new RedisBulkhead(redisTemplate, redisMessageListenerContainer.getIfAvailable()), properties.getErrorMsg(),
+                handlerMethodMetadataRegistry.getIfAvailable(HandlerMethodMetadataRegistry::new), isCluster());
+    }
+
+    private boolean isCluster() {
+        var properties = redisProperties.getIfAvailable();
+        return properties != null && properties.getCluster() != null && !CollectionUtils.isEmpty(properties.getCluster().getNodes());
     }
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        if (properties.isEnabled()) registry.addInterceptor(new RedisRateLimiterInterceptor(new RedisRateLimiter(redisTemplate), properties.getErrorMsg()));
+        redisRateLimiterInterceptor.ifAvailable(registry::addInterceptor);
     }
 
 }
@@ -1,33 +1,111 @@
 package io.github.dengchen2020.ratelimiter.redis;
 
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.ratelimiter.AbstractRateLimiterInterceptor;
+import io.github.dengchen2020.ratelimiter.BulkheadPermit;
+import io.github.dengchen2020.ratelimiter.MultiRateLimitResult;
+import io.github.dengchen2020.ratelimiter.annotation.Bulkhead;
 import io.github.dengchen2020.ratelimiter.annotation.RateLimit;
+import io.github.dengchen2020.ratelimiter.annotation.RateLimitAlgorithm;
 import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
 
 import java.time.Duration;
+import java.util.ArrayList;
 
 /**
  * 分布式限流拦截器
+ * <p>持有各限流器，随Bean销毁时关闭</p>
  *
  * @author xiaochen
  * @since 2024/8/3
  */
 @NullMarked
-final class RedisRateLimiterInterceptor extends AbstractRateLimiterInterceptor {
+final class RedisRateLimiterInterceptor extends AbstractRateLimiterInterceptor implements AutoCloseable {
 
     private final RedisRateLimiter redisRateLimiter;
 
-    public RedisRateLimiterInterceptor(RedisRateLimiter redisRateLimiter, String errorMsg) {
-        super(errorMsg);
+    private final RedisGcraRateLimiter redisGcraRateLimiter;
+
+    private final @Nullable RedisLeasedRateLimiter redisLeasedRateLimiter;
+
+    private final RedisMultiRateLimiter redisMultiRateLimiter;
+
+    private final @Nullable RedisRateLimitFallback fallback;
+
+    private final RedisBulkhead redisBulkhead;
+
+    /**
+     * Redis集群模式下所有限流标识共用的hash tag，多维度限流的Key位于同一slot
+     */
+    private static final String CLUSTER_KEY_PREFIX = "{dc:ratelimit}:";
+
+    private final boolean cluster;
+
+    public RedisRateLimiterInterceptor(RedisRateLimiter redisRateLimiter, RedisGcraRateLimiter redisGcraRateLimiter, @Nullable RedisLeasedRateLimiter redisLeasedRateLimiter,
+                                       RedisMultiRateLimiter redisMultiRateLimiter, @Nullable RedisRateLimitFallback fallback, RedisBulkhead redisBulkhead, String errorMsg,
+                                       HandlerMethodMetadataRegistry handlerMethodMetadataRegistry, boolean cluster) {
+        super(errorMsg, handlerMethodMetadataRegistry);
+        this.cluster = cluster;
         this.redisRateLimiter = redisRateLimiter;
+        this.redisGcraRateLimiter = redisGcraRateLimiter;
+        this.redisLeasedRateLimiter = redisLeasedRateLimiter;
+        this.redisMultiRateLimiter = redisMultiRateLimiter;
+        this.fallback = fallback;
+        this.redisBulkhead = redisBulkhead;
+    }
+
+    /**
+     * 集群模式下所有限流标识使用同一个hash tag，多维度限流的脚本不会跨slot，代价是注解方式的限流Key集中在一个节点
+     */
+    @Override
+    protected String keyPrefix() {
+        return cluster ? CLUSTER_KEY_PREFIX : "";
     }
 
     @Override
     protected boolean limit(RateLimit rateLimit, String limitKey) {
+        if (redisLeasedRateLimiter != null) return redisLeasedRateLimiter.limit(limitKey, rateLimit.value(), Duration.of(rateLimit.time(), rateLimit.timeUnit().toChronoUnit()));
         return redisRateLimiter.limit(limitKey, rateLimit.value(), Duration.of(rateLimit.time(), rateLimit.timeUnit().toChronoUnit()));
     }
-}
 
+    @Override
+    protected long tryAcquire(RateLimit rateLimit, String limitKey) {
+        if (fallback == null) return doTryAcquire(rateLimit, limitKey);
+        return fallback.execute(() -> doTryAcquire(rateLimit, limitKey),
+                () -> fallback.tryAcquireLocal(limitKey, rateLimit.value(), Duration.of(rateLimit.time(), rateLimit.timeUnit().toChronoUnit())));
+    }
 
+    private long doTryAcquire(RateLimit rateLimit, String limitKey) {
+        if (rateLimit.algorithm() == RateLimitAlgorithm.gcra) {
+            return redisGcraRateLimiter.tryAcquire(limitKey, rateLimit.value(), Duration.of(rateLimit.time(), rateLimit.timeUnit().toChronoUnit()));
+        }
+        return super.tryAcquire(rateLimit, limitKey);
+    }
 
+    /**
+     * 多维度限流在一个Lua脚本内原子完成，不使用租约模式
+     */
+    @Override
+    protected MultiRateLimitResult tryAcquireAll(RateLimit[] rateLimits, String[] limitKeys) {
+        var dimensions = new ArrayList<RedisMultiRateLimiter.Dimension>(rateLimits.length);
+        for (int i = 0; i < rateLimits.length; i++) {
+            var rateLimit = rateLimits[i];
+            dimensions.add(new RedisMultiRateLimiter.Dimension(limitKeys[i], rateLimit.value(), Duration.of(rateLimit.time(), rateLimit.timeUnit().toChronoUnit()), rateLimit.algorithm()));
+        }
+        if (fallback == null) return redisMultiRateLimiter.tryAcquire(dimensions);
+        return fallback.execute(() -> redisMultiRateLimiter.tryAcquire(dimensions), () -> fallback.tryAcquireLocal(dimensions));
+    }
 
+    @Override
+    protected @Nullable BulkheadPermit tryAcquireBulkhead(Bulkhead bulkhead, String key) {
+        return redisBulkhead.tryAcquire(key, bulkhead.value(), bulkhead.maxWaiting(), Duration.ofMillis(bulkhead.waitTime()), Duration.ofMillis(bulkhead.leaseTime()));
+    }
+
+    @Override
+    public void close() {
+        if (redisLeasedRateLimiter != null) redisLeasedRateLimiter.close();
+        if (fallback != null) fallback.close();
+        redisBulkhead.close();
+    }
+}
@@ -1,6 +1,7 @@
 package io.github.dengchen2020.security.authentication.interceptor;
 
 import io.github.dengchen2020.core.interceptor.BaseHandlerMethodInterceptor;
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.core.security.context.SecurityContextHolder;
 import io.github.dengchen2020.core.security.principal.AnonymousAuthentication;
 import io.github.dengchen2020.security.annotation.NoTokenRequired;
@@ -20,6 +21,13 @@ public class AuthenticationInterceptor extends BaseHandlerMethodInterceptor {
 
     public static final String EXCEPTION_MESSAGE = AuthenticationInterceptor.class.getName() + ".exceptionMessage";
 
+    public AuthenticationInterceptor() {
+    }
+
+    public AuthenticationInterceptor(HandlerMethodMetadataRegistry handlerMethodMetadataRegistry) {
+        super(handlerMethodMetadataRegistry);
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod) {
         var authentication = SecurityContextHolder.getAuthentication();
@@ -27,9 +35,7 @@ public class AuthenticationInterceptor extends BaseHandlerMethodInterceptor {
             authentication.afterAuthentication(request);
             return true;
         }
-        NoTokenRequired noTokenRequired = handlerMethod.getMethod().getAnnotation(NoTokenRequired.class);
-        if (noTokenRequired == null) noTokenRequired = handlerMethod.getBeanType().getAnnotation(NoTokenRequired.class);
-        if (noTokenRequired != null) {
+        if (handlerMethodMetadata(handlerMethod).hasAnnotation(NoTokenRequired.class)) {
             SecurityContextHolder.setAuthentication(AnonymousAuthentication.INSTANCE);
             return true;
         }
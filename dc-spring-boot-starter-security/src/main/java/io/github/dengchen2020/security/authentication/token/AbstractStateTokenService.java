@@ -6,12 +6,17 @@ import io.github.dengchen2020.core.utils.StrUtils;
 import org.jspecify.annotations.NonNull;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
  * 有状态Token实现基类
+ * <p>认证信息通过{@link AuthenticationConvert#serializeToBytes}以二进制存储，读写认证信息时直接使用连接的二进制命令，key及其他值按UTF-8编码</p>
  * @author xiaochen
  * @since 2026/5/16
  */
@@ -98,6 +103,13 @@ abstract class AbstractStateTokenService implements TokenService, InitializingBe
         return List.of(tokenKey(userId), infoKey(userId));
     }
 
+    /**
+     * 按UTF-8编码，与{@link StringRedisTemplate}的序列化方式一致
+     */
+    protected static byte[] raw(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
     // ========= 通用方法 =========
 
     /**
@@ -107,7 +119,10 @@ abstract class AbstractStateTokenService implements TokenService, InitializingBe
      */
     public boolean refreshAuthentication(@NonNull Authentication authentication) {
         try {
-            return stringRedisTemplate.opsForValue().setIfPresent(infoKey(authentication.userId()), authenticationConvert.serialize(authentication));
+            byte[] key = raw(infoKey(authentication.userId()));
+            byte[] payload = authenticationConvert.serializeToBytes(authentication);
+            return Boolean.TRUE.equals(stringRedisTemplate.execute((RedisCallback<Boolean>) connection ->
+                    connection.stringCommands().set(key, payload, Expiration.persistent(), RedisStringCommands.SetOption.ifPresent())));
         } catch (IllegalArgumentException e) {
             return false;
         }
@@ -3,8 +3,12 @@ package io.github.dengchen2020.security.authentication.token;
 import io.github.dengchen2020.core.utils.JsonUtils;
 import io.github.dengchen2020.core.security.principal.Authentication;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * Token认证信息转换器
+ * <p>默认使用Json，可使用{@link CborAuthenticationConvert}以二进制格式存储，
+ * 从Redis读取时按首字节识别格式，两种格式的数据都能读取，切换格式无需用户重新登录</p>
  *
  * @author xiaochen
  * @since 2024/4/28
@@ -21,4 +25,23 @@ public interface AuthenticationConvert {
         return JsonUtils.fromJson(tokenInfo, type());
     }
 
+    /**
+     * 序列化为存储到Redis的数据，默认为{@link #serialize(Authentication)}的UTF-8编码
+     * @param authentication 认证信息
+     * @return 序列化后的数据
+     */
+    default byte[] serializeToBytes(Authentication authentication) {
+        return serialize(authentication).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 反序列化从Redis读取的数据，首字节为{@link CborAuthenticationConvert#VERSION}时按CBOR读取，否则按{@link #deserialize(String)}读取
+     * @param data 序列化后的数据
+     * @return 认证信息
+     */
+    default Authentication deserialize(byte[] data) {
+        if (CborAuthenticationConvert.isCbor(data)) return CborAuthenticationConvert.decode(data, type());
+        return deserialize(new String(data, StandardCharsets.UTF_8));
+    }
+
 }
@@ -6,9 +6,12 @@ import io.fusionauth.jwt.Verifier;
 import io.fusionauth.jwt.domain.JWT;
 import io.fusionauth.jwt.hmac.HMACSigner;
 import io.fusionauth.jwt.hmac.HMACVerifier;
+import org.jspecify.annotations.Nullable;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.util.Base64;
 
 /**
  * JWT工具
@@ -21,14 +24,20 @@ public class JwtHelper {
 
     private final Verifier verifier;
 
+    /**
+     * 由{@link #signer}签发的Token的头部，头部与之相同时算法确定，可跳过头部解析
+     */
+    private final String signedHeader;
+
     public JwtHelper(String secret) {
-        this.signer = HMACSigner.newSHA256Signer(secret);
-        this.verifier = HMACVerifier.newVerifier(secret);
+        this(HMACSigner.newSHA256Signer(secret), HMACVerifier.newVerifier(secret));
     }
 
     public JwtHelper(Signer signer, Verifier verifier) {
         this.signer = signer;
         this.verifier = verifier;
+        var sample = encode(new JWT());
+        this.signedHeader = sample.substring(0, sample.indexOf('.') + 1);
     }
 
     /**
@@ -51,6 +60,30 @@ public class JwtHelper {
         return JWT.getDecoder().decode(token, verifier);
     }
 
+    /**
+     * 仅校验签名并返回payload的json字节，不解析头部及声明
+     * <p>只处理头部与本实例签发的Token一致的情况，其余情况返回null，应使用{@link #decode(String)}</p>
+     *
+     * @param token JWT字符串
+     * @return payload的json字节，不适用时返回null，过期等声明需调用方自行校验
+     * @throws io.fusionauth.jwt.InvalidJWTSignatureException 签名无效
+     */
+    public byte @Nullable [] verify(String token) {
+        if (!token.startsWith(signedHeader)) return null;
+        int last = token.lastIndexOf('.');
+        if (last < signedHeader.length() || last == token.length() - 1) return null;
+        byte[] signature;
+        byte[] payload;
+        try {
+            signature = Base64.getUrlDecoder().decode(token.substring(last + 1));
+            payload = Base64.getUrlDecoder().decode(token.substring(signedHeader.length(), last));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        verifier.verify(signer.getAlgorithm(), token.substring(0, last).getBytes(StandardCharsets.UTF_8), signature);
+        return payload;
+    }
+
     /**
      * 创建Token
      * @param timestamp 过期时间（时间戳）
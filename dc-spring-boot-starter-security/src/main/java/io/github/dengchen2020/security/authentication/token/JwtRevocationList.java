@@ -0,0 +1,142 @@
+package io.github.dengchen2020.security.authentication.token;
+
+import io.github.dengchen2020.core.redis.RedisMessagePublisher;
+import io.github.dengchen2020.core.redis.annotation.RedisListener;
+import io.github.dengchen2020.core.utils.hash.LocalBloomFilter;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT吊销列表
+ * <p>已吊销Token的jti存储在Redis有序集合中，分值为Token的过期时间戳，过期后自动清理；
+ * 每个节点在本地维护一个布隆过滤器，吊销时通过{@link RedisMessagePublisher}同步到所有节点</p>
+ * <p>校验时先查本地布隆过滤器，绝大多数请求不访问Redis，仅在可能已吊销时到Redis确认。
+ * 布隆过滤器定期根据Redis重建，清除已过期的jti并补齐发布订阅期间丢失的消息</p>
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class JwtRevocationList implements InitializingBean, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(JwtRevocationList.class);
+
+    public static final String REVOKED_KEY = "dc:security:jwt:revoked";
+
+    public static final String REVOKE_CHANNEL = "dc:security:jwt:revoke";
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final RedisMessagePublisher redisMessagePublisher;
+
+    private final int expectedElements;
+
+    private final Duration rebuildInterval;
+
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("jwt-revocation-rebuilder").factory());
+
+    private volatile LocalBloomFilter bloomFilter;
+
+    /**
+     * 重建期间新建的布隆过滤器，重建期间收到的jti同时写入，避免重建时丢失
+     */
+    private volatile @Nullable LocalBloomFilter rebuilding;
+
+    /**
+     * @param expectedElements 预期同时处于吊销状态的Token数量，用于计算布隆过滤器大小
+     * @param rebuildInterval 布隆过滤器重建间隔
+     */
+    public JwtRevocationList(StringRedisTemplate stringRedisTemplate, RedisMessagePublisher redisMessagePublisher, int expectedElements, Duration rebuildInterval) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.redisMessagePublisher = redisMessagePublisher;
+        this.expectedElements = Math.max(expectedElements, 1);
+        this.rebuildInterval = rebuildInterval;
+        this.bloomFilter = new LocalBloomFilter(this.expectedElements);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        rebuild();
+        long interval = rebuildInterval.toMillis();
+        rebuilder.scheduleWithFixedDelay(() -> {
+            try {
+                rebuild();
+            } catch (Exception e) {
+                log.warn("JWT吊销列表重建失败：{}", e.toString());
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * 吊销Token
+     * @param jti Token的唯一ID
+     * @param expireAt Token的过期时间戳，过期后从吊销列表中移除
+     */
+    public void revoke(String jti, long expireAt) {
+        if (expireAt <= System.currentTimeMillis()) return;
+        stringRedisTemplate.opsForZSet().add(REVOKED_KEY, jti, expireAt);
+        add(jti);
+        try {
+            redisMessagePublisher.publish(REVOKE_CHANNEL, jti);
+        } catch (Exception e) {
+            log.error("JWT吊销同步失败，jti：{}", jti, e);
+        }
+    }
+
+    /**
+     * 是否已吊销，本地布隆过滤器判断不存在时直接返回false，否则到Redis确认
+     * @param jti Token的唯一ID
+     */
+    public boolean isRevoked(String jti) {
+        if (!bloomFilter.mightContain(jti)) return false;
+        Double expireAt = stringRedisTemplate.opsForZSet().score(REVOKED_KEY, jti);
+        return expireAt != null && expireAt > System.currentTimeMillis();
+    }
+
+    @RedisListener(REVOKE_CHANNEL)
+    public void handleMessage(String jti) {
+        add(jti);
+        if (log.isDebugEnabled()) log.debug("JWT吊销同步，jti：{}", jti);
+    }
+
+    private void add(String jti) {
+        // 先读取rebuilding：为null时要么重建未开始（jti已在Redis中，重建会读到），要么已完成（bloomFilter已是新的）
+        var next = rebuilding;
+        bloomFilter.add(jti);
+        if (next != null) next.add(jti);
+    }
+
+    /**
+     * 清理已过期的jti，并根据Redis中的吊销列表重建本地布隆过滤器
+     */
+    public void rebuild() {
+        long now = System.currentTimeMillis();
+        var zSet = stringRedisTemplate.opsForZSet();
+        Long size = zSet.count(REVOKED_KEY, now, Double.POSITIVE_INFINITY);
+        var next = new LocalBloomFilter(Math.max(expectedElements, size == null ? 0 : (int) Math.min(size * 2, Integer.MAX_VALUE)));
+        rebuilding = next;
+        try {
+            zSet.removeRangeByScore(REVOKED_KEY, Double.NEGATIVE_INFINITY, now);
+            Set<String> jtis = zSet.rangeByScore(REVOKED_KEY, now, Double.POSITIVE_INFINITY);
+            if (jtis != null) jtis.forEach(next::add);
+            bloomFilter = next;
+        } finally {
+            rebuilding = null;
+        }
+        if (log.isDebugEnabled()) log.debug("JWT吊销列表重建完成，当前吊销数量：{}", size);
+    }
+
+}
@@ -1,9 +1,16 @@
 package io.github.dengchen2020.security.authentication.token;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.fusionauth.jwt.InvalidJWTSignatureException;
 import io.fusionauth.jwt.JWTExpiredException;
 import io.fusionauth.jwt.domain.JWT;
 import io.github.dengchen2020.core.security.principal.Authentication;
+import io.github.dengchen2020.core.utils.JsonHelper;
 import io.github.dengchen2020.core.utils.JsonUtils;
 import io.github.dengchen2020.core.utils.StrUtils;
 import io.github.dengchen2020.security.exception.SessionTimeOutException;
@@ -13,11 +20,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
 /**
  * 基于JWT实现无状态Token认证
  * <p>对比有状态：</p>
  * <p>优势：不依赖第三方组件，节省内存，稳定性好，可维护性高</p>
  * <p>劣势：对Token的控制力弱，无法做到踢人下线，实时封禁等功能，因此请求Token的有效期不建议太长。刷新Token需自行实现，可以存库或redis防止重复使用
+ * <p>校验通过的Token按签名缓存至过期，同一Token重复请求时不再计算签名和解析Token；缓存的是认证信息的载荷而不是认证信息对象，
+ * 每次读取都创建新的认证信息，请求中修改认证信息（如{@link Authentication#setAttribute}、{@link Authentication#afterAuthentication}）不会影响其他请求</p>
+ * <p>可开启{@link JwtRevocationList}，通过{@link #revoke(String)}吊销Token，实现退出登录、封禁</p>
  *
  * @author xiaochen
  * @since 2024/4/28
@@ -33,6 +46,13 @@ public class JwtTokenService implements TokenService, InitializingBean {
         this.authenticationConvert = authenticationConvert;
     }
 
+    private @Nullable JwtRevocationList revocationList;
+
+    @Autowired(required = false)
+    public void setRevocationList(JwtRevocationList revocationList) {
+        this.revocationList = revocationList;
+    }
+
     @Override
     public void afterPropertiesSet() {
         if (authenticationConvert == null) throw new IllegalStateException("authenticationConvert must be set");
@@ -45,11 +65,42 @@ public class JwtTokenService implements TokenService, InitializingBean {
     private final long refreshExpireSeconds;
     private final String tokenName;
 
+    /**
+     * 已校验Token的缓存，key为签名部分，为null表示未开启
+     */
+    private final @Nullable Cache<String, VerifiedToken> verifiedCache;
+
     public JwtTokenService(String secret, long expireSeconds, long refreshExpireSeconds, String tokenName) {
+        this(secret, expireSeconds, refreshExpireSeconds, tokenName, 0);
+    }
+
+    /**
+     * @param cacheMaximumSize 已校验Token的缓存最大数量，小于等于0表示不缓存
+     */
+    public JwtTokenService(String secret, long expireSeconds, long refreshExpireSeconds, String tokenName, long cacheMaximumSize) {
         this.jwtHelper = new JwtHelper(secret);
         this.expireSeconds = expireSeconds;
         this.refreshExpireSeconds = refreshExpireSeconds;
         this.tokenName = tokenName;
+        this.verifiedCache = cacheMaximumSize <= 0 ? null : Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(value.expireAt() - System.currentTimeMillis(), 0));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
     @Override
@@ -138,20 +189,107 @@ public class JwtTokenService implements TokenService, InitializingBean {
         throw new SessionTimeOutException("未实现刷新token");
     }
 
+    /**
+     * 读取token，已吊销的Token返回null
+     */
     @Override
     public @Nullable Authentication readToken(String token) {
+        var verified = verifyCached(token);
+        if (revocationList != null && verified.jti() != null && revocationList.isRevoked(verified.jti())) return null;
+        return JsonUtils.convertValue(verified.payload(), authenticationConvert.type());
+    }
+
+    private VerifiedToken verifyCached(String token) {
+        if (verifiedCache == null) return verify(token);
+        var signature = token.substring(token.lastIndexOf('.') + 1);
+        var cached = verifiedCache.getIfPresent(signature);
+        // 签名相同但Token不同说明头部或载荷被篡改，不能使用缓存
+        if (cached != null && cached.token().equals(token) && System.currentTimeMillis() < cached.expireAt()) {
+            return cached;
+        }
+        var verified = verify(token);
+        if (verified.expireAt() > 0) verifiedCache.put(signature, verified);
+        return verified;
+    }
+
+    /**
+     * 吊销token，吊销后在过期前都无法再使用，需开启{@link JwtRevocationList}
+     * <p>已过期或无效的token无需吊销，直接忽略</p>
+     * @param token token值
+     */
+    public void revoke(String token) {
+        if (revocationList == null) throw new IllegalStateException("未开启JWT吊销，请配置dc.security.jwt.revocation.enabled=true");
+        VerifiedToken verified;
+        try {
+            verified = verifyCached(token);
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) log.debug("吊销的token已失效，{}", e.toString());
+            return;
+        }
+        if (verified.jti() == null || verified.expireAt() <= 0) return;
+        revocationList.revoke(verified.jti(), verified.expireAt());
+    }
+
+    /**
+     * 校验Token并读取认证信息的载荷，优先走快速路径，不适用时回退到完整解码，由其抛出过期、签名无效等异常
+     */
+    private VerifiedToken verify(String token) {
+        var verified = readFast(token);
+        if (verified != null) return verified;
         JWT jwt = jwtHelper.decode(token);
-        return readJwt(jwt);
+        return new VerifiedToken(token, readJwt(jwt), jwt.uniqueId, jwt.expiration == null ? 0 : jwt.expiration.toInstant().toEpochMilli());
+    }
+
+    /**
+     * 快速路径：校验签名后流式读取载荷，认证信息读取为树结构，不经过中间的Map
+     *
+     * @return 头部非本服务签发、已过期、未生效或格式不符时返回null
+     */
+    private @Nullable VerifiedToken readFast(String token) {
+        byte[] payload = jwtHelper.verify(token);
+        if (payload == null) return null;
+        long exp = 0;
+        long nbf = 0;
+        String jti = null;
+        JsonNode authentication = null;
+        try (JsonParser parser = JsonHelper.INSTANCE.getMapper().createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) return null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                parser.nextToken();
+                switch (name) {
+                    case "exp" -> exp = parser.getLongValue();
+                    case "nbf" -> nbf = parser.getLongValue();
+                    case "jti" -> jti = parser.getText();
+                    case TokenConstant.PAYLOAD -> authentication = parser.readValueAsTree();
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        long now = System.currentTimeMillis() / 1000;
+        if (authentication == null || authentication.isNull() || exp <= now || nbf > now) return null;
+        return new VerifiedToken(token, authentication, jti, exp * 1000);
     }
 
     /**
-     * 读取jwt中的认证信息
+     * 读取jwt中认证信息的载荷
      *
      * @param jwt jwt
-     * @return {@link Authentication}
+     * @return 认证信息的树结构
      */
-    private Authentication readJwt(JWT jwt) {
-        return JsonUtils.convertValue(jwt.getOtherClaims().get(TokenConstant.PAYLOAD), authenticationConvert.type());
+    private JsonNode readJwt(JWT jwt) {
+        return JsonUtils.convertValue(jwt.getOtherClaims().get(TokenConstant.PAYLOAD), JsonNode.class);
     }
 
+    /**
+     * 已校验的Token
+     * @param token token值
+     * @param payload 认证信息的树结构，只读，每次读取Token时由此创建新的认证信息
+     * @param jti Token的唯一ID
+     * @param expireAt 过期时间戳，为0表示无过期时间，不缓存
+     */
+    private record VerifiedToken(String token, JsonNode payload, @Nullable String jti, long expireAt) {}
+
 }
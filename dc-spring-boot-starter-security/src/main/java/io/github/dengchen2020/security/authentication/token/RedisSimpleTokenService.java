@@ -5,9 +5,11 @@ import io.github.dengchen2020.security.exception.SessionTimeOutException;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.util.StringUtils;
 
 import java.util.concurrent.TimeUnit;
@@ -43,17 +45,16 @@ public class RedisSimpleTokenService extends AbstractStateTokenService {
 
     public TokenInfo createToken(Authentication authentication, long expireSeconds) {
         String token = generateTokenStr(authentication);
-        String payload = authenticationConvert.serialize(authentication);
+        byte[] payload = authenticationConvert.serializeToBytes(authentication);
         long expiresIn = System.currentTimeMillis() + expireSeconds * 1000;
         var userId = authentication.userId();
-        stringRedisTemplate.executePipelined(new SessionCallback<>() {
-            @Override
-            public @Nullable <K, V> Object execute(@NonNull RedisOperations<K, V> operations) throws DataAccessException {
-                var redis = ((StringRedisTemplate)operations);
-                redis.opsForValue().set(tokenKey(userId), token, expireSeconds, TimeUnit.SECONDS);
-                redis.opsForValue().set(infoKey(userId), payload, expireSeconds, TimeUnit.SECONDS);
-                return null;
-            }
+        byte[] tk = raw(tokenKey(userId));
+        byte[] ik = raw(infoKey(userId));
+        byte[] value = raw(token);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().setEx(tk, expireSeconds, value);
+            connection.stringCommands().setEx(ik, expireSeconds, payload);
+            return null;
         });
         return generateTokenInfo(token, expiresIn);
     }
@@ -67,18 +68,15 @@ public class RedisSimpleTokenService extends AbstractStateTokenService {
         if (storedToken == null) return null;
         // 如果当前账号的token存在，但是与前端所给的token不一致
         if (!token.equals(storedToken)) throw new SessionTimeOutException("当前账号已在其他设备登录");
-        String info;
+        // 认证信息按二进制读取，不经过字符串转换
+        byte[] info;
         if (autorenewal) {
-            var res = stringRedisTemplate.executePipelined(new SessionCallback<>() {
-                @Override
-                public @Nullable <K, V> Object execute(@NonNull RedisOperations<K, V> operations) throws DataAccessException {
-                    var redis = ((StringRedisTemplate)operations);
-                    redis.getExpire(tk, TimeUnit.SECONDS);
-                    redis.opsForValue().get(ik);
-                    return null;
-                }
-            });
-            info = (String) res.get(1);
+            var res = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                connection.keyCommands().ttl(raw(tk));
+                connection.stringCommands().get(raw(ik));
+                return null;
+            }, RedisSerializer.byteArray());
+            info = (byte[]) res.get(1);
             long ttl = (long) res.getFirst();
             if (ttl > 0 && ttl < autorenewalSeconds) {
                 stringRedisTemplate.executePipelined(new SessionCallback<>() {
@@ -92,9 +90,9 @@ public class RedisSimpleTokenService extends AbstractStateTokenService {
                 });
             }
         } else {
-            info = stringRedisTemplate.opsForValue().get(ik);
+            info = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(raw(ik)));
         }
-        return StringUtils.hasText(info) ? authenticationConvert.deserialize(info) : null;
+        return info != null && info.length > 0 ? authenticationConvert.deserialize(info) : null;
     }
 
     /**
@@ -1,35 +1,98 @@
 package io.github.dengchen2020.security.authentication.token;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.github.dengchen2020.core.redis.RedisMessagePublisher;
 import io.github.dengchen2020.core.security.principal.Authentication;
 import org.jspecify.annotations.NonNull;
 import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.SessionCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.util.StringUtils;
 
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 基于Redis实现有状态Token认证（支持每用户最大在线数量控制）
  * <p>对比无状态</p>
  * <p>优势：对Token的控制力强，可以踢人下线，实时封禁等更多功能</p>
  * <p>劣势：依赖Redis，增加了运维成本</p>
+ * <p>可开启本地近缓存：校验通过的Token及序列化的认证信息在本地缓存较短时间，命中时不访问Redis，每次读取都反序列化出新的认证信息，
+ * 请求中修改认证信息（如{@link Authentication#setAttribute}、{@link Authentication#afterAuthentication}）不会影响其他请求；
+ * 续期在后台异步合并执行；踢人下线、移除Token、刷新认证信息以及登录挤掉最早的Token时，通过{@link RedisMessagePublisher}通知所有节点清除该用户的缓存，
+ * 本节点未开启近缓存时同样通知，其他节点可能开启了近缓存</p>
  * @author xiaochen
  * @since 2024/4/24
  */
-public class RedisTokenService extends AbstractStateTokenService {
+public class RedisTokenService extends AbstractStateTokenService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisTokenService.class);
 
     private final String tokenKeyPrefix;
     private final int maxOnlineNum;
 
+    /**
+     * 本地近缓存，为null表示未开启
+     */
+    private final @Nullable Cache<String, CachedToken> nearCache;
+
+    /**
+     * 用户id -> 近缓存中该用户的Token，按用户清除缓存时不需要遍历整个近缓存，集合仅在compute中修改
+     */
+    private final Map<String, Set<String>> cachedTokensByUser = new ConcurrentHashMap<>();
+
+    /**
+     * 正在续期的用户，同一用户的续期请求合并为一次
+     */
+    private final Set<String> renewingUsers = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService renewalExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("token-renewal").factory());
+
+    private @Nullable RedisMessagePublisher redisMessagePublisher;
+
     public RedisTokenService(long expireSeconds, int maxOnlineNum, String device, boolean autorenewal, long autorenewalSeconds, String tokenName) {
+        this(expireSeconds, maxOnlineNum, device, autorenewal, autorenewalSeconds, tokenName, null, 0);
+    }
+
+    /**
+     * @param nearCacheTtl 本地近缓存有效期，为null或不大于0时不开启近缓存
+     * @param nearCacheMaximumSize 本地近缓存最大数量
+     */
+    public RedisTokenService(long expireSeconds, int maxOnlineNum, String device, boolean autorenewal, long autorenewalSeconds, String tokenName,
+                             @Nullable Duration nearCacheTtl, long nearCacheMaximumSize) {
         super(expireSeconds, autorenewal, autorenewalSeconds, tokenName);
         this.maxOnlineNum = Math.max(maxOnlineNum, 1);
         this.tokenKeyPrefix = StringUtils.hasText(device)
                 ? TOKEN_COMMON_PREFIX + device + ":"
                 : TOKEN_COMMON_PREFIX;
+        this.nearCache = nearCacheTtl == null || nearCacheTtl.isNegative() || nearCacheTtl.isZero() ? null
+                : Caffeine.newBuilder().expireAfterWrite(nearCacheTtl).maximumSize(Math.max(nearCacheMaximumSize, 1))
+                .<String, CachedToken>removalListener((token, _, cause) -> {
+                    if (token != null && cause != RemovalCause.REPLACED) unindex(token);
+                })
+                .build();
+    }
+
+    @Autowired(required = false)
+    public void setRedisMessagePublisher(RedisMessagePublisher redisMessagePublisher) {
+        this.redisMessagePublisher = redisMessagePublisher;
     }
 
     @Override
@@ -48,58 +111,134 @@ public class RedisTokenService extends AbstractStateTokenService {
 
     public TokenInfo createToken(Authentication authentication, int maxOnlineNum, long expireSeconds) {
         String token = generateTokenStr(authentication);
-        String payload = authenticationConvert.serialize(authentication);
+        byte[] payload = authenticationConvert.serializeToBytes(authentication);
         long expiresIn = System.currentTimeMillis() + expireSeconds * 1000;
         var userId = authentication.userId();
+        // 超出最大在线数的Token已被移除，需清除各节点的缓存
+        if (store(userId, token, payload, maxOnlineNum, expireSeconds)) evict(userId);
+        return generateTokenInfo(token, expiresIn);
+    }
+
+    /**
+     * 保存Token及认证信息，超出最大在线数时移除最早登录的Token
+     * @return 是否移除了该用户的其他Token
+     */
+    protected boolean store(String userId, String token, byte[] payload, int maxOnlineNum, long expireSeconds) {
+        byte[] tk = raw(tokenKey(userId));
+        byte[] ik = raw(infoKey(userId));
+        byte[] value = raw(token);
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.listCommands().rPush(tk, value);
+            connection.keyCommands().expire(tk, expireSeconds);
+            connection.stringCommands().setEx(ik, expireSeconds, payload);
+            connection.listCommands().lTrim(tk, -maxOnlineNum, -1);
+            return null;
+        });
+        // RPUSH返回追加后的长度，超过最大在线数的部分已被LTRIM移除
+        return !results.isEmpty() && results.getFirst() instanceof Long size && size > maxOnlineNum;
+    }
+
+    @Override
+    public @Nullable Authentication readToken(String token) {
+        if (nearCache == null) return readFromRedis(token);
+        long now = System.currentTimeMillis();
+        var cached = nearCache.getIfPresent(token);
+        if (cached != null && now >= cached.expireAt()) {
+            nearCache.asMap().remove(token, cached);
+            cached = null;
+        }
+        if (cached == null) {
+            cached = nearCache.get(token, this::loadCachedToken);
+            return cached == null ? null : authenticationConvert.deserialize(cached.info());
+        }
+        if (autorenewal && now >= cached.renewAt() && cached.renewing().compareAndSet(false, true)) {
+            renewAsync(token);
+        }
+        return authenticationConvert.deserialize(cached.info());
+    }
+
+    private @Nullable Authentication readFromRedis(String token) {
+        var stored = fetch(token);
+        return stored == null ? null : authenticationConvert.deserialize(stored.info());
+    }
+
+    /**
+     * 从Redis加载Token并计算本地缓存的过期时间与续期时间，本地缓存不会超过Token在Redis中的剩余有效期
+     */
+    private @Nullable CachedToken loadCachedToken(String token) {
+        var stored = fetch(token);
+        if (stored == null) return null;
+        long now = System.currentTimeMillis();
+        long expireAt = stored.ttlMillis() > 0 ? now + stored.ttlMillis() : Long.MAX_VALUE;
+        long renewAt = autorenewal && stored.ttlMillis() > 0 ? expireAt - autorenewalSeconds * 1000 : Long.MAX_VALUE;
+        cachedTokensByUser.compute(getUserId(token), (_, tokens) -> {
+            if (tokens == null) tokens = new HashSet<>();
+            tokens.add(token);
+            return tokens;
+        });
+        return new CachedToken(stored.info(), expireAt, renewAt, new AtomicBoolean());
+    }
+
+    /**
+     * 校验Token并读取认证信息，开启自动续期且剩余有效期低于阈值时续期
+     * @param token token值
+     * @return 认证信息及Token剩余有效毫秒数，Token无效时返回null
+     */
+    protected @Nullable StoredToken fetch(String token) {
+        var userId = getUserId(token);
+        var tk = tokenKey(userId);
+        var ik = infoKey(userId);
+        if (stringRedisTemplate.opsForList().indexOf(tk, token) == null) return null;
+        // 认证信息按二进制读取，不经过字符串转换
+        var res = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.keyCommands().pTtl(raw(tk));
+            connection.stringCommands().get(raw(ik));
+            return null;
+        }, RedisSerializer.byteArray());
+        var info = (byte[]) res.get(1);
+        if (info == null || info.length == 0) return null;
+        long ttl = (long) res.getFirst();
+        if (autorenewal && ttl > 0 && ttl < autorenewalSeconds * 1000) {
+            renew(token);
+            ttl = expireSeconds * 1000;
+        }
+        return new StoredToken(info, ttl);
+    }
+
+    /**
+     * 将Token及认证信息的有效期延长至{@link #expireSeconds}
+     * @param token token值
+     */
+    protected void renew(String token) {
+        var userId = getUserId(token);
+        var tk = tokenKey(userId);
+        var ik = infoKey(userId);
         stringRedisTemplate.executePipelined(new SessionCallback<>() {
             @Override
             public @Nullable <K, V> Object execute(@NonNull RedisOperations<K, V> operations) throws DataAccessException {
                 var redis = ((StringRedisTemplate)operations);
-                var tk = tokenKey(userId);
-                redis.opsForList().rightPush(tk, token);
                 redis.expire(tk, expireSeconds, TimeUnit.SECONDS);
-                redis.opsForValue().set(infoKey(userId), payload, expireSeconds, TimeUnit.SECONDS);
-                redis.opsForList().trim(tk, -maxOnlineNum, -1);
+                redis.expire(ik, expireSeconds, TimeUnit.SECONDS);
                 return null;
             }
         });
-        return generateTokenInfo(token, expiresIn);
     }
 
-    @Override
-    public @Nullable Authentication readToken(String token) {
+    /**
+     * 后台异步续期，同一用户同时只会有一个续期任务
+     */
+    private void renewAsync(String token) {
         var userId = getUserId(token);
-        var tk = tokenKey(userId);
-        var ik = infoKey(userId);
-        if (stringRedisTemplate.opsForList().indexOf(tk, token) == null) return null;
-        String info;
-        if (autorenewal) {
-            var res = stringRedisTemplate.executePipelined(new SessionCallback<>() {
-                @Override
-                public @Nullable <K, V> Object execute(@NonNull RedisOperations<K, V> operations) throws DataAccessException {
-                    var redis = ((StringRedisTemplate)operations);
-                    redis.getExpire(tk, TimeUnit.SECONDS);
-                    redis.opsForValue().get(ik);
-                    return null;
-                }
-            });
-            info = (String) res.get(1);
-            long ttl = (long) res.getFirst();
-            if (ttl > 0 && ttl < autorenewalSeconds) {
-                stringRedisTemplate.executePipelined(new SessionCallback<>() {
-                    @Override
-                    public @Nullable <K, V> Object execute(@NonNull RedisOperations<K, V> operations) throws DataAccessException {
-                        var redis = ((StringRedisTemplate)operations);
-                        redis.expire(tk, expireSeconds, TimeUnit.SECONDS);
-                        redis.expire(ik, expireSeconds, TimeUnit.SECONDS);
-                        return null;
-                    }
-                });
+        if (!renewingUsers.add(userId)) return;
+        renewalExecutor.execute(() -> {
+            try {
+                renew(token);
+            } catch (Exception e) {
+                log.warn("Token续期失败，userId：{}，{}", userId, e.toString());
+            } finally {
+                renewingUsers.remove(userId);
             }
-        } else {
-            info = stringRedisTemplate.opsForValue().get(ik);
-        }
-        return StringUtils.hasText(info) ? authenticationConvert.deserialize(info) : null;
+        });
     }
 
     /**
@@ -107,7 +246,16 @@ public class RedisTokenService extends AbstractStateTokenService {
      * @param token
      */
     public void removeToken(String token) {
-        stringRedisTemplate.opsForList().remove(tokenKey(getUserId(token)), 1, token);
+        var userId = getUserId(token);
+        delete(userId, token);
+        evict(userId);
+    }
+
+    /**
+     * 从Redis中移除该token
+     */
+    protected void delete(String userId, String token) {
+        stringRedisTemplate.opsForList().remove(tokenKey(userId), 1, token);
     }
 
     /**
@@ -120,4 +268,75 @@ public class RedisTokenService extends AbstractStateTokenService {
         return num == null ? 0 : num;
     }
 
+    @Override
+    public boolean refreshAuthentication(@NonNull Authentication authentication) {
+        boolean refreshed = super.refreshAuthentication(authentication);
+        if (refreshed) evict(authentication.userId());
+        return refreshed;
+    }
+
+    @Override
+    public void offline(String userId) {
+        super.offline(userId);
+        evict(userId);
+    }
+
+    /**
+     * 清除本节点该用户所有Token的本地缓存
+     * @param userId 用户id
+     */
+    public void evictLocal(String userId) {
+        if (nearCache == null) return;
+        var tokens = cachedTokensByUser.remove(userId);
+        if (tokens != null) nearCache.invalidateAll(tokens);
+    }
+
+    /**
+     * Token移出近缓存后从用户索引中移除，同一Token已被重新加载时保留
+     */
+    private void unindex(String token) {
+        if (nearCache == null || nearCache.asMap().containsKey(token)) return;
+        cachedTokensByUser.computeIfPresent(getUserId(token), (_, tokens) -> {
+            tokens.remove(token);
+            return tokens.isEmpty() ? null : tokens;
+        });
+    }
+
+    /**
+     * 清除本节点并通知其他节点清除该用户所有Token的本地缓存，本节点未开启近缓存时也通知
+     */
+    private void evict(String userId) {
+        evictLocal(userId);
+        if (redisMessagePublisher == null) return;
+        try {
+            redisMessagePublisher.publish(TokenSyncMessageListener.TOKEN_SYNC, userId);
+        } catch (Exception e) {
+            log.error("Token缓存同步失败", e);
+        }
+    }
+
+    /**
+     * 停止后台续期线程
+     */
+    @Override
+    public void close() {
+        renewalExecutor.shutdown();
+    }
+
+    /**
+     * Redis中读取到的Token
+     * @param info 序列化的认证信息
+     * @param ttlMillis Token剩余有效毫秒数，小于等于0表示未知
+     */
+    protected record StoredToken(byte[] info, long ttlMillis) {}
+
+    /**
+     * 本地缓存的Token，缓存序列化的认证信息而不是认证信息对象，同一Token的并发请求不会共享同一个可变对象
+     * @param info 序列化的认证信息
+     * @param expireAt Token在Redis中的过期时间
+     * @param renewAt 需要续期的时间
+     * @param renewing 是否已触发续期
+     */
+    private record CachedToken(byte[] info, long expireAt, long renewAt, AtomicBoolean renewing) {}
+
 }
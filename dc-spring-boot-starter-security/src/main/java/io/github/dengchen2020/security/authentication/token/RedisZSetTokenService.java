@@ -0,0 +1,173 @@
+package io.github.dengchen2020.security.authentication.token;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 基于Redis有序集合实现有状态Token认证（支持每用户最大在线数量控制）
+ * <p>用户的Token存储在ZSET中，分值为Token的过期时间戳，每个Token单独过期、单独续期。
+ * 读取Token时由一个Lua脚本完成校验、读取认证信息、续期及清理已过期的Token，无论该用户在线多少设备都只需一次往返</p>
+ * <p>与{@link RedisTokenService}使用不同的Key前缀，两种存储结构的数据互不兼容，切换后用户需重新登录；
+ * 超出最大在线数时移除最早过期（即最久未活跃）的Token</p>
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class RedisZSetTokenService extends RedisTokenService {
+
+    private final String tokenKeyPrefix;
+
+    /**
+     * KEYS：token集合、认证信息，ARGV：token、认证信息、有效期毫秒数、最大在线数
+     * <p>返回因超出最大在线数被移除的Token数量</p>
+     */
+    private static final RedisScript<Long> storeScript = new DefaultRedisScript<>(
+            """
+                    local time = redis.call("TIME")
+                    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+                    redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", now)
+                    redis.call("ZADD", KEYS[1], now + tonumber(ARGV[3]), ARGV[1])
+                    local overflow = redis.call("ZCARD", KEYS[1]) - tonumber(ARGV[4])
+                    local removed = 0
+                    if overflow > 0 then
+                        local oldest = redis.call("ZRANGE", KEYS[1], 0, overflow)
+                        for _, t in ipairs(oldest) do
+                            if overflow > 0 and t ~= ARGV[1] then
+                                redis.call("ZREM", KEYS[1], t)
+                                overflow = overflow - 1
+                                removed = removed + 1
+                            end
+                        end
+                    end
+                    local ttl = tonumber(redis.call("ZRANGE", KEYS[1], -1, -1, "WITHSCORES")[2]) - now
+                    redis.call("PEXPIRE", KEYS[1], ttl)
+                    redis.call("SET", KEYS[2], ARGV[2], "PX", ttl)
+                    return removed
+                    """,
+            Long.class
+    );
+
+    /**
+     * KEYS：token集合、认证信息，ARGV：token、有效期毫秒数、续期阈值毫秒数（0表示不续期）
+     * <p>返回认证信息及剩余有效毫秒数，token无效时返回空</p>
+     */
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> fetchScript = new DefaultRedisScript<>(
+            """
+                    local time = redis.call("TIME")
+                    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+                    redis.call("ZREMRANGEBYSCORE", KEYS[1], "-inf", now)
+                    local score = redis.call("ZSCORE", KEYS[1], ARGV[1])
+                    if not score then
+                        return {}
+                    end
+                    local info = redis.call("GET", KEYS[2])
+                    if not info then
+                        return {}
+                    end
+                    local ttl = tonumber(score) - now
+                    local threshold = tonumber(ARGV[3])
+                    if threshold > 0 and ttl < threshold then
+                        ttl = tonumber(ARGV[2])
+                        redis.call("ZADD", KEYS[1], now + ttl, ARGV[1])
+                        redis.call("PEXPIRE", KEYS[1], ttl)
+                        redis.call("PEXPIRE", KEYS[2], ttl)
+                    end
+                    return {info, ttl}
+                    """,
+            List.class
+    );
+
+    /**
+     * KEYS：token集合、认证信息，ARGV：token、有效期毫秒数，token已失效时不续期
+     */
+    private static final RedisScript<Long> renewScript = new DefaultRedisScript<>(
+            """
+                    local time = redis.call("TIME")
+                    local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+                    local score = redis.call("ZSCORE", KEYS[1], ARGV[1])
+                    if not score or tonumber(score) <= now then
+                        return 0
+                    end
+                    local ttl = tonumber(ARGV[2])
+                    redis.call("ZADD", KEYS[1], now + ttl, ARGV[1])
+                    redis.call("PEXPIRE", KEYS[1], ttl)
+                    redis.call("PEXPIRE", KEYS[2], ttl)
+                    return 1
+                    """,
+            Long.class
+    );
+
+    public RedisZSetTokenService(long expireSeconds, int maxOnlineNum, String device, boolean autorenewal, long autorenewalSeconds, String tokenName) {
+        this(expireSeconds, maxOnlineNum, device, autorenewal, autorenewalSeconds, tokenName, null, 0);
+    }
+
+    /**
+     * @param nearCacheTtl 本地近缓存有效期，为null或不大于0时不开启近缓存
+     * @param nearCacheMaximumSize 本地近缓存最大数量
+     */
+    public RedisZSetTokenService(long expireSeconds, int maxOnlineNum, String device, boolean autorenewal, long autorenewalSeconds, String tokenName,
+                                 @Nullable Duration nearCacheTtl, long nearCacheMaximumSize) {
+        super(expireSeconds, maxOnlineNum, device, autorenewal, autorenewalSeconds, tokenName, nearCacheTtl, nearCacheMaximumSize);
+        this.tokenKeyPrefix = StringUtils.hasText(device)
+                ? TOKEN_COMMON_PREFIX + "zset:" + device + ":"
+                : TOKEN_COMMON_PREFIX + "zset:";
+    }
+
+    @Override
+    protected String tokenKeyPrefix() {
+        return tokenKeyPrefix;
+    }
+
+    /**
+     * 脚本返回的认证信息按二进制处理，不经过字符串转换
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> RedisSerializer<T> binary() {
+        return (RedisSerializer<T>) (RedisSerializer<?>) RedisSerializer.byteArray();
+    }
+
+    @Override
+    protected boolean store(String userId, String token, byte[] payload, int maxOnlineNum, long expireSeconds) {
+        Long removed = stringRedisTemplate.execute(storeScript, RedisSerializer.byteArray(), binary(), keys(userId),
+                raw(token), payload, raw(String.valueOf(expireSeconds * 1000)), raw(String.valueOf(Math.max(maxOnlineNum, 1))));
+        return removed != null && removed > 0;
+    }
+
+    @Override
+    protected @Nullable StoredToken fetch(String token) {
+        var userId = getUserId(token);
+        var res = stringRedisTemplate.execute(fetchScript, stringRedisTemplate.getStringSerializer(), binary(), keys(userId), token, String.valueOf(expireSeconds * 1000),
+                String.valueOf(autorenewal ? autorenewalSeconds * 1000 : 0));
+        if (res == null || res.size() < 2) return null;
+        var info = (byte[]) res.getFirst();
+        return info != null && info.length > 0 ? new StoredToken(info, (Long) res.get(1)) : null;
+    }
+
+    @Override
+    protected void renew(String token) {
+        stringRedisTemplate.execute(renewScript, keys(getUserId(token)), token, String.valueOf(expireSeconds * 1000));
+    }
+
+    @Override
+    protected void delete(String userId, String token) {
+        stringRedisTemplate.opsForZSet().remove(tokenKey(userId), token);
+    }
+
+    /**
+     * 获取token对应的用户在线的设备数量，不含已过期的Token
+     * @param token
+     * @return
+     */
+    @Override
+    public long onlineNum(String token) {
+        Long num = stringRedisTemplate.opsForZSet().count(tokenKey(getUserId(token)), System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+        return num == null ? 0 : num;
+    }
+
+}
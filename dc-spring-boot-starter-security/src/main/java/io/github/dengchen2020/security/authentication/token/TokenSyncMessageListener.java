@@ -0,0 +1,31 @@
+package io.github.dengchen2020.security.authentication.token;
+
+import io.github.dengchen2020.core.redis.annotation.RedisListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Token本地近缓存同步消息订阅，收到消息后清除本节点该用户的Token缓存
+ *
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+public class TokenSyncMessageListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenSyncMessageListener.class);
+
+    public static final String TOKEN_SYNC = "dc:security:token:sync";
+
+    private final RedisTokenService redisTokenService;
+
+    public TokenSyncMessageListener(RedisTokenService redisTokenService) {
+        this.redisTokenService = redisTokenService;
+    }
+
+    @RedisListener(TOKEN_SYNC)
+    public void handleMessage(String userId) {
+        redisTokenService.evictLocal(userId);
+        if (log.isDebugEnabled()) log.debug("用户：{}的Token缓存被同步清除", userId);
+    }
+
+}
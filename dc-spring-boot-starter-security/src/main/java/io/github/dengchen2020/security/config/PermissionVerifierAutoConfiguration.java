@@ -1,11 +1,14 @@
 package io.github.dengchen2020.security.config;
 
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.core.security.principal.PermissionsInfo;
 import io.github.dengchen2020.security.authentication.token.AuthenticationConvert;
+import io.github.dengchen2020.security.permission.PermissionRegistry;
 import io.github.dengchen2020.security.permission.PermissionVerifyInterceptor;
 import io.github.dengchen2020.security.permission.PermissionVerifier;
 import io.github.dengchen2020.security.permission.SimplePermissionVerifier;
 import io.github.dengchen2020.security.properties.SecurityProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -27,11 +30,18 @@ public final class PermissionVerifierAutoConfiguration {
 
     @ConditionalOnMissingBean
     @Bean
-    PermissionVerifier permissionVerifier(AuthenticationConvert authenticationConvert) {
+    PermissionRegistry permissionRegistry() {
+        return new PermissionRegistry();
+    }
+
+    @ConditionalOnMissingBean
+    @Bean
+    PermissionVerifier permissionVerifier(AuthenticationConvert authenticationConvert, PermissionRegistry permissionRegistry) {
         if (!PermissionsInfo.class.isAssignableFrom(authenticationConvert.type())) {
             throw new IllegalArgumentException(authenticationConvert.type() +" 未实现 " + PermissionsInfo.class.getName());
         }
-        return new SimplePermissionVerifier();
+        // 内置的Token服务每次请求都创建新的认证信息，权限集合实例不会被复用，直接按权限字符串校验
+        return new SimplePermissionVerifier(permissionRegistry);
     }
 
     @Configuration(proxyBeanMethods = false)
@@ -39,16 +49,21 @@ public final class PermissionVerifierAutoConfiguration {
 
         private final SecurityProperties securityProperties;
 
-        private final PermissionVerifier permissionVerifier;
+        private final PermissionVerifyInterceptor permissionVerifyInterceptor;
 
-        InterceptorConfiguration(SecurityProperties securityProperties, PermissionVerifier permissionVerifier) {
+        /**
+         * 接口所需的权限在启动创建注解元数据时预先编译，与其他拦截器共用同一次接口遍历
+         */
+        InterceptorConfiguration(SecurityProperties securityProperties, PermissionVerifier permissionVerifier, PermissionRegistry permissionRegistry,
+                                 ObjectProvider<HandlerMethodMetadataRegistry> handlerMethodMetadataRegistry) {
             this.securityProperties = securityProperties;
-            this.permissionVerifier = permissionVerifier;
+            this.permissionVerifyInterceptor = new PermissionVerifyInterceptor(permissionVerifier, permissionRegistry,
+                    handlerMethodMetadataRegistry.getIfAvailable(HandlerMethodMetadataRegistry::new));
         }
 
         @Override
         public void addInterceptors(InterceptorRegistry registry) {
-            InterceptorRegistration registration = registry.addInterceptor(new PermissionVerifyInterceptor(permissionVerifier))
+            InterceptorRegistration registration = registry.addInterceptor(permissionVerifyInterceptor)
                     .order(Ordered.HIGHEST_PRECEDENCE + 10);
             if (!CollectionUtils.isEmpty(securityProperties.getResource().getPermitPath())) registration.excludePathPatterns(securityProperties.getResource().getPermitPath());
         }
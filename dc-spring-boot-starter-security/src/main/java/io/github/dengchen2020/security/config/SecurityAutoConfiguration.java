@@ -1,10 +1,12 @@
 package io.github.dengchen2020.security.config;
 
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.security.authentication.filter.AuthenticationFilter;
 import io.github.dengchen2020.security.authentication.interceptor.AuthenticationInterceptor;
 import io.github.dengchen2020.security.authentication.token.TokenService;
 import io.github.dengchen2020.security.event.listener.SecurityScheduledTaskHandleListener;
 import io.github.dengchen2020.security.properties.SecurityProperties;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
@@ -29,9 +31,12 @@ public final class SecurityAutoConfiguration implements WebMvcConfigurer {
 
     private final SecurityProperties securityProperties;
 
-    public SecurityAutoConfiguration(TokenService tokenService, SecurityProperties securityProperties) {
+    private final ObjectProvider<HandlerMethodMetadataRegistry> handlerMethodMetadataRegistry;
+
+    public SecurityAutoConfiguration(TokenService tokenService, SecurityProperties securityProperties, ObjectProvider<HandlerMethodMetadataRegistry> handlerMethodMetadataRegistry) {
         this.tokenService = tokenService;
         this.securityProperties = securityProperties;
+        this.handlerMethodMetadataRegistry = handlerMethodMetadataRegistry;
     }
 
     @ConditionalOnMissingBean
@@ -51,7 +56,7 @@ public final class SecurityAutoConfiguration implements WebMvcConfigurer {
 
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
-        InterceptorRegistration registration = registry.addInterceptor(new AuthenticationInterceptor())
+        InterceptorRegistration registration = registry.addInterceptor(new AuthenticationInterceptor(handlerMethodMetadataRegistry.getIfAvailable(HandlerMethodMetadataRegistry::new)))
                 .order(Ordered.HIGHEST_PRECEDENCE);
         if (!CollectionUtils.isEmpty(securityProperties.getResource().getPermitPath())) registration.excludePathPatterns(securityProperties.getResource().getPermitPath());
     }
@@ -1,21 +1,32 @@
 package io.github.dengchen2020.security.config;
 
+import io.github.dengchen2020.core.redis.RedisDependencyAutoConfiguration;
+import io.github.dengchen2020.core.redis.RedisMessagePublisher;
 import io.github.dengchen2020.security.authentication.token.AuthenticationConvert;
+import io.github.dengchen2020.security.authentication.token.CborAuthenticationConvert;
+import io.github.dengchen2020.security.authentication.token.JwtRevocationList;
 import io.github.dengchen2020.security.authentication.token.JwtTokenService;
 import io.github.dengchen2020.security.authentication.token.RedisSimpleTokenService;
 import io.github.dengchen2020.security.authentication.token.RedisTokenService;
+import io.github.dengchen2020.security.authentication.token.RedisZSetTokenService;
+import io.github.dengchen2020.security.authentication.token.TokenSyncMessageListener;
 import io.github.dengchen2020.security.properties.SecurityProperties;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
 
 /**
  * Token认证实现类自动配置
  * @author xiaochen
  * @since 2025/11/28
  */
+@AutoConfigureAfter(RedisDependencyAutoConfiguration.class)
 @EnableConfigurationProperties(SecurityProperties.class)
 @ConditionalOnProperty("dc.security.authentication-type")
 @Configuration(proxyBeanMethods = false)
@@ -24,6 +35,9 @@ public final class TokenAutoConfiguration {
     @ConditionalOnMissingBean
     @Bean
     AuthenticationConvert authenticationConvert(SecurityProperties securityProperties) {
+        if (securityProperties.getAuthenticationCodec() == SecurityProperties.AuthenticationCodec.cbor) {
+            return new CborAuthenticationConvert(securityProperties.getAuthenticationType());
+        }
         return securityProperties::getAuthenticationType;
     }
 
@@ -34,7 +48,23 @@ public final class TokenAutoConfiguration {
         @Bean
         JwtTokenService jwtTokenService(SecurityProperties securityProperties) {
             SecurityProperties.JWT jwt = securityProperties.getJwt();
-            return new JwtTokenService(jwt.getSecret(), jwt.getExpireIn().toSeconds(), jwt.getRefreshExpireIn().toSeconds(), securityProperties.getTokenName());
+            return new JwtTokenService(jwt.getSecret(), jwt.getExpireIn().toSeconds(), jwt.getRefreshExpireIn().toSeconds(), securityProperties.getTokenName(), jwt.getCacheMaximumSize());
+        }
+
+        /**
+         * JWT吊销，依赖redis的发布订阅
+         */
+        @ConditionalOnProperty("dc.security.jwt.revocation.enabled")
+        @ConditionalOnClass(name = "org.springframework.data.redis.core.StringRedisTemplate")
+        @ConditionalOnBean(RedisMessagePublisher.class)
+        @Configuration(proxyBeanMethods = false)
+        final static class JwtRevocation {
+            @ConditionalOnMissingBean
+            @Bean
+            JwtRevocationList jwtRevocationList(StringRedisTemplate stringRedisTemplate, RedisMessagePublisher redisMessagePublisher, SecurityProperties securityProperties) {
+                SecurityProperties.Revocation revocation = securityProperties.getJwt().getRevocation();
+                return new JwtRevocationList(stringRedisTemplate, redisMessagePublisher, revocation.getExpectedElements(), revocation.getRebuildInterval());
+            }
         }
     }
 
@@ -56,7 +86,22 @@ public final class TokenAutoConfiguration {
         @Bean
         RedisTokenService tokenService(SecurityProperties securityProperties) {
             SecurityProperties.Token token = securityProperties.getToken();
-            return new RedisTokenService(token.getExpireIn().toSeconds(), token.getMaxOnlineNum(), token.getDevice(), token.isAutorenewal(), token.getAutorenewalSeconds(), securityProperties.getTokenName());
+            SecurityProperties.NearCache nearCache = token.getNearCache();
+            var nearCacheTtl = nearCache.isEnabled() ? nearCache.getTtl() : null;
+            if (token.getStorage() == SecurityProperties.Storage.zset) {
+                return new RedisZSetTokenService(token.getExpireIn().toSeconds(), token.getMaxOnlineNum(), token.getDevice(), token.isAutorenewal(), token.getAutorenewalSeconds(), securityProperties.getTokenName(),
+                        nearCacheTtl, nearCache.getMaximumSize());
+            }
+            return new RedisTokenService(token.getExpireIn().toSeconds(), token.getMaxOnlineNum(), token.getDevice(), token.isAutorenewal(), token.getAutorenewalSeconds(), securityProperties.getTokenName(),
+                    nearCacheTtl, nearCache.getMaximumSize());
+        }
+
+        @ConditionalOnProperty("dc.security.token.near-cache.enabled")
+        @ConditionalOnBean(RedisMessagePublisher.class)
+        @ConditionalOnMissingBean
+        @Bean
+        TokenSyncMessageListener tokenSyncMessageListener(RedisTokenService redisTokenService) {
+            return new TokenSyncMessageListener(redisTokenService);
         }
     }
 
@@ -0,0 +1,132 @@
+package io.github.dengchen2020.security.permission;
+
+import org.jspecify.annotations.NullMarked;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 权限注册表，将权限字符串映射为从0开始递增的整数id
+ * <p>接口所需的权限在启动时注册，用户拥有的权限与接口所需的权限都表示为按id置位的long[]，
+ * 校验时只需逐个long按位与，不再每次构建集合和比较字符串</p>
+ * <p>只有被注册过的权限才有id，用户拥有但未被任何接口使用的权限不参与计算</p>
+ * @author xiaochen
+ * @since 2026/10/18
+ */
+@NullMarked
+public class PermissionRegistry {
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private volatile int size;
+
+    /**
+     * 注册权限，已注册时返回原有的id
+     * @param permission 权限
+     * @return 权限id
+     */
+    public int intern(String permission) {
+        Integer id = ids.get(permission);
+        if (id != null) return id;
+        synchronized (this) {
+            return ids.computeIfAbsent(permission, _ -> size++);
+        }
+    }
+
+    /**
+     * @param permission 权限
+     * @return 权限id，未注册时返回-1
+     */
+    public int idOf(String permission) {
+        Integer id = ids.get(permission);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * 已注册的权限数量，每注册一个新权限加1，可作为已计算结果的版本号
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 注册所需的权限并编译为位图
+     * @param permissions 所需的权限，拥有其中任意一个即可
+     * @return {@link RequiredPermissions}
+     */
+    public RequiredPermissions compile(String[] permissions) {
+        long[] bits = new long[0];
+        for (String permission : permissions) {
+            int id = intern(permission);
+            if (id >> 6 >= bits.length) bits = Arrays.copyOf(bits, (id >> 6) + 1);
+            bits[id >> 6] |= 1L << id;
+        }
+        return new RequiredPermissions(permissions, bits);
+    }
+
+    /**
+     * 将拥有的权限转换为位图，未注册的权限忽略
+     * @param permissions 拥有的权限
+     * @return 按权限id置位的位图
+     */
+    public long[] bitsOf(Collection<String> permissions) {
+        long[] bits = new long[(size + 63) >> 6];
+        for (String permission : permissions) {
+            int id = idOf(permission);
+            if (id < 0 || id >> 6 >= bits.length) continue;
+            bits[id >> 6] |= 1L << id;
+        }
+        return bits;
+    }
+
+    /**
+     * 编译后的接口所需权限，不可变，只能由{@link #compile(String[])}创建
+     */
+    public static final class RequiredPermissions {
+
+        private final String[] names;
+
+        private final List<String> nameList;
+
+        /**
+         * 按权限id置位的位图
+         */
+        private final long[] bits;
+
+        RequiredPermissions(String[] names, long[] bits) {
+            this.names = names.clone();
+            this.nameList = List.of(this.names);
+            this.bits = bits.clone();
+        }
+
+        /**
+         * @return 所需的权限，不可修改
+         */
+        public List<String> names() {
+            return nameList;
+        }
+
+        /**
+         * 内部使用，调用方不得修改
+         */
+        String[] nameArray() {
+            return names;
+        }
+
+        /**
+         * 是否拥有其中任意一个权限
+         * @param granted 拥有的权限位图
+         */
+        public boolean matchesAny(long[] granted) {
+            int n = Math.min(bits.length, granted.length);
+            for (int i = 0; i < n; i++) {
+                if ((bits[i] & granted[i]) != 0) return true;
+            }
+            return false;
+        }
+
+    }
+
+}
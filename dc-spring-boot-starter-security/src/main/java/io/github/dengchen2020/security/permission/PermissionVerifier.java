@@ -16,4 +16,15 @@ public interface PermissionVerifier {
      */
     boolean hasPermission(Authentication authentication, String[] permissions);
 
+    /**
+     * 是否拥有接口所需的权限，{@link PermissionVerifyInterceptor}对每个接口只编译一次所需的权限
+     * <p>默认按权限字符串校验，可覆盖以使用编译后的位图</p>
+     * @param authentication 认证信息对象
+     * @param permissions 编译后的接口所需权限
+     * @return true：有权限，false：没权限
+     */
+    default boolean hasPermission(Authentication authentication, PermissionRegistry.RequiredPermissions permissions) {
+        return hasPermission(authentication, permissions.nameArray());
+    }
+
 }
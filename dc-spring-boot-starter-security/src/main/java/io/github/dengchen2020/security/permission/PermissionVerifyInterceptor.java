@@ -1,6 +1,8 @@
 package io.github.dengchen2020.security.permission;
 
 import io.github.dengchen2020.core.interceptor.BaseHandlerMethodInterceptor;
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadata;
+import io.github.dengchen2020.core.interceptor.HandlerMethodMetadataRegistry;
 import io.github.dengchen2020.core.security.context.SecurityContextHolder;
 import io.github.dengchen2020.core.security.principal.AnonymousAuthentication;
 import io.github.dengchen2020.core.security.principal.Authentication;
@@ -13,6 +15,8 @@ import org.springframework.web.method.HandlerMethod;
 
 /**
  * 权限校验拦截器
+ * <p>每个接口所需的权限只解析、编译一次，缓存在{@link HandlerMethodMetadata}中；
+ * 传入共享的{@link HandlerMethodMetadataRegistry}时通过其初始化回调在启动时预先编译，不再单独遍历接口</p>
  *
  * @author xiaochen
  * @since 2024/7/22
@@ -20,21 +24,61 @@ import org.springframework.web.method.HandlerMethod;
 @NullMarked
 public class PermissionVerifyInterceptor extends BaseHandlerMethodInterceptor {
 
+    /**
+     * 未标注{@link HasPermission}
+     */
+    private static final PermissionRegistry.RequiredPermissions ABSENT = new PermissionRegistry.RequiredPermissions(new String[0], new long[0]);
+
+    /**
+     * 标注了{@link HasPermission}但未指定权限，以请求路径作为所需的权限
+     */
+    private static final PermissionRegistry.RequiredPermissions REQUEST_URI = new PermissionRegistry.RequiredPermissions(new String[0], new long[0]);
+
     private final PermissionVerifier permissionVerifier;
 
+    private final PermissionRegistry permissionRegistry;
+
     public PermissionVerifyInterceptor(PermissionVerifier permissionVerifier) {
+        this(permissionVerifier, new PermissionRegistry());
+    }
+
+    public PermissionVerifyInterceptor(PermissionVerifier permissionVerifier, PermissionRegistry permissionRegistry) {
+        this.permissionVerifier = permissionVerifier;
+        this.permissionRegistry = permissionRegistry;
+    }
+
+    /**
+     * @param handlerMethodMetadataRegistry 共享的注解元数据注册表，启动创建元数据时预先编译接口所需的权限
+     */
+    public PermissionVerifyInterceptor(PermissionVerifier permissionVerifier, PermissionRegistry permissionRegistry, HandlerMethodMetadataRegistry handlerMethodMetadataRegistry) {
+        super(handlerMethodMetadataRegistry);
         this.permissionVerifier = permissionVerifier;
+        this.permissionRegistry = permissionRegistry;
+        handlerMethodMetadataRegistry.addInitializer(metadata -> metadata.computeIfAbsent(this, this::resolve));
     }
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, HandlerMethod handlerMethod) {
         Authentication authentication = SecurityContextHolder.getAuthentication();
         if (authentication instanceof AnonymousAuthentication) return true;
-        HasPermission hasPermission = handlerMethod.getMethod().getAnnotation(HasPermission.class);
-        if (hasPermission == null) hasPermission = handlerMethod.getBeanType().getAnnotation(HasPermission.class);
-        if (hasPermission == null) return true;
-        if (permissionVerifier.hasPermission(authentication, hasPermission.value().length == 0 ? new String[]{request.getRequestURI()} : hasPermission.value())) return true;
+        var required = requiredPermissions(handlerMethod);
+        if (required == ABSENT) return true;
+        if (required == REQUEST_URI) {
+            if (permissionVerifier.hasPermission(authentication, new String[]{request.getRequestURI()})) return true;
+        } else if (permissionVerifier.hasPermission(authentication, required)) return true;
         throw new NoPermissionException();
     }
 
+    private PermissionRegistry.RequiredPermissions requiredPermissions(HandlerMethod handlerMethod) {
+        PermissionRegistry.RequiredPermissions required = handlerMethodMetadata(handlerMethod).computeIfAbsent(this, this::resolve);
+        return required == null ? ABSENT : required;
+    }
+
+    private PermissionRegistry.RequiredPermissions resolve(HandlerMethodMetadata metadata) {
+        HasPermission hasPermission = metadata.getAnnotation(HasPermission.class);
+        if (hasPermission == null) return ABSENT;
+        if (hasPermission.value().length == 0) return REQUEST_URI;
+        return permissionRegistry.compile(hasPermission.value());
+    }
+
 }
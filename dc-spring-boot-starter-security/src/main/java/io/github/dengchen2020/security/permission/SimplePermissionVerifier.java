@@ -1,18 +1,47 @@
 package io.github.dengchen2020.security.permission;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.github.dengchen2020.core.security.principal.Authentication;
 import io.github.dengchen2020.core.security.principal.PermissionsInfo;
+import org.jspecify.annotations.Nullable;
 
 import java.util.Set;
 
 /**
  * 简单的权限校验器
+ * <p>认证信息被缓存复用时（如自定义的Token服务返回共享的不可变认证信息），用户拥有的权限通过{@link PermissionRegistry}转换为位图并按权限集合实例缓存，
+ * 同一认证信息只计算一次；认证信息每次请求都重新创建时缓存无法命中，直接按权限字符串校验</p>
  *
  * @author xiaochen
  * @since 2024/7/22
  */
 public class SimplePermissionVerifier implements PermissionVerifier {
 
+    private final PermissionRegistry permissionRegistry;
+
+    /**
+     * 权限集合实例 → 位图，按实例比较，权限集合不再被引用时自动移除；认证信息不被复用时为null
+     */
+    private final @Nullable Cache<Set<String>, GrantedPermissions> grantedCache;
+
+    public SimplePermissionVerifier() {
+        this(new PermissionRegistry());
+    }
+
+    public SimplePermissionVerifier(PermissionRegistry permissionRegistry) {
+        this(permissionRegistry, false);
+    }
+
+    /**
+     * @param permissionRegistry 权限注册表
+     * @param authenticationReused 认证信息是否被缓存复用，为true时才使用位图校验
+     */
+    public SimplePermissionVerifier(PermissionRegistry permissionRegistry, boolean authenticationReused) {
+        this.permissionRegistry = permissionRegistry;
+        this.grantedCache = authenticationReused ? Caffeine.newBuilder().weakKeys().maximumSize(10000).build() : null;
+    }
+
     /**
      * 是否拥有相应的权限
      * <p>拥有其中任意一个权限即可</p>
@@ -25,11 +54,41 @@ public class SimplePermissionVerifier implements PermissionVerifier {
         if (!(authentication instanceof PermissionsInfo permissionsInfo)) return true;
         if (permissionsInfo.permissions() == null) return true;
         if (permissionsInfo.permissions().isEmpty()) return false;
-        Set<String> permissionSet = Set.of(permissions);
-        for (String s : permissionsInfo.permissions()) {
-            if (permissionSet.contains(s)) return true;
+        Set<String> granted = permissionsInfo.permissions();
+        for (String permission : permissions) {
+            if (granted.contains(permission)) return true;
         }
         return false;
     }
 
+    /**
+     * 是否拥有相应的权限，认证信息被复用时按位图校验
+     * <p>拥有其中任意一个权限即可</p>
+     */
+    @Override
+    public boolean hasPermission(Authentication authentication, PermissionRegistry.RequiredPermissions permissions) {
+        if (grantedCache == null) return PermissionVerifier.super.hasPermission(authentication, permissions);
+        if (!(authentication instanceof PermissionsInfo permissionsInfo)) return true;
+        Set<String> granted = permissionsInfo.permissions();
+        if (granted == null) return true;
+        if (granted.isEmpty()) return false;
+        return permissions.matchesAny(grantedBits(grantedCache, granted));
+    }
+
+    private long[] grantedBits(Cache<Set<String>, GrantedPermissions> cache, Set<String> granted) {
+        int version = permissionRegistry.size();
+        var cached = cache.getIfPresent(granted);
+        // 有新注册的权限时需重新计算
+        if (cached != null && cached.version() == version) return cached.bits();
+        long[] bits = permissionRegistry.bitsOf(granted);
+        cache.put(granted, new GrantedPermissions(version, bits));
+        return bits;
+    }
+
+    /**
+     * @param version 计算时{@link PermissionRegistry#size()}的值
+     * @param bits 按权限id置位的位图
+     */
+    private record GrantedPermissions(int version, long[] bits) {}
+
 }
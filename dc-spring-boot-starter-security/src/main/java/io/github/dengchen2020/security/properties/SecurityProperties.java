@@ -23,6 +23,12 @@ public class SecurityProperties {
      */
     private Class<? extends Authentication> authenticationType;
 
+    /**
+     * 有状态Token认证信息在redis中的存储格式，json：Json格式，cbor：CBOR二进制格式，体积更小、解析更快，需引入jackson-dataformat-cbor。
+     * 两种格式的数据都能读取，切换后已登录的用户无需重新登录
+     */
+    private AuthenticationCodec authenticationCodec = AuthenticationCodec.json;
+
     /**
      * token名称，用于请求头中的key
      */
@@ -67,6 +73,18 @@ public class SecurityProperties {
         this.tokenName = tokenName;
     }
 
+    public enum AuthenticationCodec {
+        json, cbor
+    }
+
+    public AuthenticationCodec getAuthenticationCodec() {
+        return authenticationCodec;
+    }
+
+    public void setAuthenticationCodec(AuthenticationCodec authenticationCodec) {
+        this.authenticationCodec = authenticationCodec;
+    }
+
     public static class Resource {
         /**
          * 无需Token认证的访问资源路径
@@ -116,6 +134,32 @@ public class SecurityProperties {
          */
         private Duration refreshExpireIn = Duration.ofDays(0);
 
+        /**
+         * 已校验Token的本地缓存最大数量，同一Token重复请求时不再校验签名，缓存的是认证信息的载荷，每次请求仍创建新的认证信息，小于等于0表示不缓存
+         */
+        private long cacheMaximumSize = 10000;
+
+        /**
+         * Token吊销
+         */
+        private Revocation revocation = new Revocation();
+
+        public Revocation getRevocation() {
+            return revocation;
+        }
+
+        public void setRevocation(Revocation revocation) {
+            this.revocation = revocation;
+        }
+
+        public long getCacheMaximumSize() {
+            return cacheMaximumSize;
+        }
+
+        public void setCacheMaximumSize(long cacheMaximumSize) {
+            this.cacheMaximumSize = cacheMaximumSize;
+        }
+
         public String getSecret() {
             return secret;
         }
@@ -141,6 +185,48 @@ public class SecurityProperties {
         }
     }
 
+    public static class Revocation {
+
+        /**
+         * 是否开启JWT吊销，开启后可通过JwtTokenService#revoke吊销Token，依赖redis
+         */
+        private boolean enabled = false;
+
+        /**
+         * 预期同时处于吊销状态的Token数量，用于计算本地布隆过滤器大小
+         */
+        private int expectedElements = 100000;
+
+        /**
+         * 本地布隆过滤器根据redis重建的间隔，重建时清除已过期的吊销记录
+         */
+        private Duration rebuildInterval = Duration.ofHours(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getExpectedElements() {
+            return expectedElements;
+        }
+
+        public void setExpectedElements(int expectedElements) {
+            this.expectedElements = expectedElements;
+        }
+
+        public Duration getRebuildInterval() {
+            return rebuildInterval;
+        }
+
+        public void setRebuildInterval(Duration rebuildInterval) {
+            this.rebuildInterval = rebuildInterval;
+        }
+    }
+
     public static class Token {
 
         /**
@@ -168,6 +254,17 @@ public class SecurityProperties {
          */
         private int autorenewalSeconds = 180;
 
+        /**
+         * 本地近缓存
+         */
+        private NearCache nearCache = new NearCache();
+
+        /**
+         * Token存储结构，list：列表，超出最大在线数时移除最早登录的Token；
+         * zset：有序集合，每个Token单独过期，一次Lua脚本完成校验、续期及清理，与用户在线设备数无关
+         */
+        private Storage storage = Storage.list;
+
         public Duration getExpireIn() {
             return expireIn;
         }
@@ -176,6 +273,22 @@ public class SecurityProperties {
             this.expireIn = expireIn;
         }
 
+        public Storage getStorage() {
+            return storage;
+        }
+
+        public void setStorage(Storage storage) {
+            this.storage = storage;
+        }
+
+        public NearCache getNearCache() {
+            return nearCache;
+        }
+
+        public void setNearCache(NearCache nearCache) {
+            this.nearCache = nearCache;
+        }
+
         public int getMaxOnlineNum() {
             return maxOnlineNum;
         }
@@ -209,6 +322,52 @@ public class SecurityProperties {
         }
     }
 
+    public enum Storage {
+        list, zset
+    }
+
+    public static class NearCache {
+
+        /**
+         * 是否开启本地近缓存，开启后校验通过的Token在本地缓存，命中时不访问Redis，踢人下线等操作通过Redis发布订阅同步清除各节点的缓存
+         */
+        private boolean enabled = false;
+
+        /**
+         * 本地缓存有效期，也是发布订阅消息丢失时Token失效的最大延迟
+         */
+        private Duration ttl = Duration.ofSeconds(5);
+
+        /**
+         * 本地缓存最大数量
+         */
+        private long maximumSize = 10000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getTtl() {
+            return ttl;
+        }
+
+        public void setTtl(Duration ttl) {
+            this.ttl = ttl;
+        }
+
+        public long getMaximumSize() {
+            return maximumSize;
+        }
+
+        public void setMaximumSize(long maximumSize) {
+            this.maximumSize = maximumSize;
+        }
+    }
+
     public static class PasswordEncoder {
         /**
          * 密码加密强度，默认为10，取值范围为4-31